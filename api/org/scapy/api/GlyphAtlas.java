@@ -0,0 +1,172 @@
+package org.scapy.api;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Caches the rasterized glyphs of a font as coverage masks.
+ *
+ * <p>
+ * The printable Latin-1 characters are drawn into a single ARGB image when the
+ * atlas is created, and the alpha channel of every glyph is kept as a mask
+ * together with its position relative to the pen and its advance. Any other
+ * character is rasterized the first time it is drawn.
+ */
+final class GlyphAtlas {
+
+    private static final int MAXIMUM_ATLASES = 64;
+    private static final char FIRST_CHARACTER = ' ';
+    private static final char LAST_CHARACTER = 0xFF;
+    private static final ConcurrentMap<Font, GlyphAtlas> atlases = new ConcurrentHashMap<>();
+    private static final Graphics2D scratchGraphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+    private final Font font;
+    private final FontRenderContext renderContext;
+    private final FontMetrics metrics;
+    private final Glyph[] glyphs = new Glyph[LAST_CHARACTER + 1];
+    private final ConcurrentMap<Character, Glyph> extraGlyphs = new ConcurrentHashMap<>();
+
+    private GlyphAtlas(Font font) {
+        this.font = font;
+        synchronized (scratchGraphics) {
+            metrics = scratchGraphics.getFontMetrics(font);
+            renderContext = scratchGraphics.getFontRenderContext();
+        }
+        Rectangle[] bounds = new Rectangle[glyphs.length];
+        int atlasWidth = 0;
+        int top = 0;
+        int bottom = 1;
+        for (char character = FIRST_CHARACTER; character <= LAST_CHARACTER; character++) {
+            if (font.canDisplay(character)) {
+                Rectangle glyphBounds = getPixelBounds(character);
+                bounds[character] = glyphBounds;
+                atlasWidth += glyphBounds.width;
+                top = Math.min(top, glyphBounds.y);
+                bottom = Math.max(bottom, glyphBounds.y + glyphBounds.height);
+            }
+        }
+        BufferedImage atlas = new BufferedImage(Math.max(1, atlasWidth), bottom - top, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D atlasGraphics = atlas.createGraphics();
+        atlasGraphics.setFont(font);
+        atlasGraphics.setColor(Color.WHITE);
+        for (int character = FIRST_CHARACTER, cellX = 0; character <= LAST_CHARACTER; character++) {
+            if (bounds[character] != null) {
+                atlasGraphics.drawString(String.valueOf((char) character), cellX - bounds[character].x, -top);
+                cellX += bounds[character].width;
+            }
+        }
+        atlasGraphics.dispose();
+        for (int character = FIRST_CHARACTER, cellX = 0; character <= LAST_CHARACTER; character++) {
+            Rectangle glyphBounds = bounds[character];
+            if (glyphBounds != null) {
+                glyphs[character] = new Glyph(atlas, cellX, glyphBounds.y - top, glyphBounds, metrics.charWidth(character));
+                cellX += glyphBounds.width;
+            }
+        }
+        atlas.flush();
+    }
+
+    static GlyphAtlas forFont(Font font) {
+        GlyphAtlas atlas = atlases.get(font);
+        if (atlas == null) {
+            if (atlases.size() >= MAXIMUM_ATLASES) {
+                atlases.clear();
+            }
+            GlyphAtlas existing = atlases.putIfAbsent(font, atlas = new GlyphAtlas(font));
+            if (existing != null) {
+                atlas = existing;
+            }
+        }
+        return atlas;
+    }
+
+    int getAscent() {
+        return metrics.getAscent();
+    }
+
+    int getHeight() {
+        return metrics.getHeight();
+    }
+
+    int stringWidth(String string) {
+        int width = 0;
+        for (int i = 0; i < string.length(); i++) {
+            width += getGlyph(string.charAt(i)).advance;
+        }
+        return width;
+    }
+
+    void drawString(RasterContext context, String string, int argb, int x, int y) {
+        int baseline = y + metrics.getAscent();
+        for (int i = 0; i < string.length(); i++) {
+            Glyph glyph = getGlyph(string.charAt(i));
+            if (glyph.coverage != null) {
+                context.drawCoverage(glyph.coverage, glyph.width, glyph.height, x + glyph.offsetX, baseline + glyph.offsetY, argb);
+            }
+            x += glyph.advance;
+        }
+    }
+
+    private Glyph getGlyph(char character) {
+        Glyph glyph = character < glyphs.length ? glyphs[character] : null;
+        if (glyph == null) {
+            glyph = extraGlyphs.get(character);
+            if (glyph == null) {
+                glyph = rasterize(character);
+                extraGlyphs.putIfAbsent(character, glyph);
+            }
+        }
+        return glyph;
+    }
+
+    private Glyph rasterize(char character) {
+        Rectangle glyphBounds = getPixelBounds(character);
+        BufferedImage image = new BufferedImage(Math.max(1, glyphBounds.width), Math.max(1, glyphBounds.height), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D imageGraphics = image.createGraphics();
+        imageGraphics.setFont(font);
+        imageGraphics.setColor(Color.WHITE);
+        imageGraphics.drawString(String.valueOf(character), -glyphBounds.x, -glyphBounds.y);
+        imageGraphics.dispose();
+        Glyph glyph = new Glyph(image, 0, 0, glyphBounds, metrics.charWidth(character));
+        image.flush();
+        return glyph;
+    }
+
+    private Rectangle getPixelBounds(char character) {
+        GlyphVector vector = font.createGlyphVector(renderContext, String.valueOf(character));
+        return vector.getPixelBounds(renderContext, 0, 0);
+    }
+
+    private static final class Glyph {
+
+        final byte[] coverage;
+        final int width;
+        final int height;
+        final int offsetX;
+        final int offsetY;
+        final int advance;
+
+        Glyph(BufferedImage image, int imageX, int imageY, Rectangle bounds, int advance) {
+            width = bounds.width;
+            height = bounds.height;
+            offsetX = bounds.x;
+            offsetY = bounds.y;
+            this.advance = advance;
+            if (width <= 0 || height <= 0) {
+                coverage = null;
+                return;
+            }
+            int[] pixels = image.getRGB(imageX, imageY, width, height, null, 0, width);
+            byte[] coverage = new byte[pixels.length];
+            boolean empty = true;
+            for (int i = 0; i < pixels.length; i++) {
+                coverage[i] = (byte) (pixels[i] >>> 24);
+                empty &= coverage[i] == 0;
+            }
+            this.coverage = empty ? null : coverage;
+        }
+    }
+}
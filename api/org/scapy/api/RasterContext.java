@@ -0,0 +1,243 @@
+package org.scapy.api;
+
+import org.scapy.core.accessors.IClient;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * A snapshot of the two-dimensional rasterizer of the game, used to draw many
+ * primitives in a single paint pass.
+ *
+ * <p>
+ * The pixel array, its width and the clipping bounds are read from the client
+ * once when the context is captured, after which every primitive runs over the
+ * cached array directly. A context should therefore not be kept beyond the
+ * paint pass it was captured in, since the game may replace its pixel array or
+ * change the clipping bounds at any time in between. Text is drawn from a
+ * cache of rasterized glyphs for each font.
+ */
+public final class RasterContext {
+
+    private final int[] pixels;
+    private final int width;
+    private final int topX;
+    private final int topY;
+    private final int bottomX;
+    private final int bottomY;
+
+    private RasterContext(int[] pixels, int width, int topX, int topY, int bottomX, int bottomY) {
+        this.pixels = pixels;
+        this.width = width;
+        this.topX = topX;
+        this.topY = topY;
+        this.bottomX = bottomX;
+        this.bottomY = bottomY;
+    }
+
+    /**
+     * Captures the current state of the rasterizer.
+     *
+     * @return the context.
+     */
+    public static RasterContext capture() {
+        IClient clientAccessor = Game.clientAccessor();
+        return new RasterContext(clientAccessor.getRasterizer2DPixels(),
+                clientAccessor.getRasterizer2DWidth(),
+                clientAccessor.getRasterizer2DTopX(),
+                clientAccessor.getRasterizer2DTopY(),
+                clientAccessor.getRasterizer2DBottomX(),
+                clientAccessor.getRasterizer2DBottomY());
+    }
+
+    public void drawPixel(int x, int y, int argb) {
+        if (x >= topX && x < bottomX && y >= topY && y < bottomY) {
+            blendPixel(x + y * width, argb);
+        }
+    }
+
+    public void drawLine(int startX, int startY, int endX, int endY, int argb) {
+        if (startY == endY) {
+            fillRectangle(Math.min(startX, endX), startY, Math.abs(endX - startX) + 1, 1, argb);
+            return;
+        }
+        int width = endX - startX;
+        int height = endY - startY;
+        int deltaStartX = 0, deltaStartY = 0, deltaEndX = 0, deltaEndY = 0;
+        if (width < 0) {
+            deltaStartX = deltaEndX = -1;
+        } else if (width > 0) {
+            deltaStartX = deltaEndX = 1;
+        }
+        if (height < 0) {
+            deltaStartY = -1;
+        } else if (height > 0) {
+            deltaStartY = 1;
+        }
+        int longest = Math.abs(width);
+        int shortest = Math.abs(height);
+        if (longest <= shortest) {
+            int swap = longest;
+            longest = shortest;
+            shortest = swap;
+            if (height < 0) {
+                deltaEndY = -1;
+            } else if (height > 0) {
+                deltaEndY = 1;
+            }
+            deltaEndX = 0;
+        }
+        int numerator = longest >> 1;
+        for (int i = 0; i <= longest; i++) {
+            drawPixel(startX, startY, argb);
+            numerator += shortest;
+            if (numerator >= longest) {
+                numerator -= longest;
+                startX += deltaStartX;
+                startY += deltaStartY;
+            } else {
+                startX += deltaEndX;
+                startY += deltaEndY;
+            }
+        }
+    }
+
+    public void drawLine(Point a, Point b, int argb) {
+        drawLine(a.x, a.y, b.x, b.y, argb);
+    }
+
+    public void fillRectangle(int x, int y, int width, int height, int argb) {
+        if (x < topX) {
+            width -= topX - x;
+            x = topX;
+        }
+        if (y < topY) {
+            height -= topY - y;
+            y = topY;
+        }
+        if (x + width > bottomX) {
+            width = bottomX - x;
+        }
+        if (y + height > bottomY) {
+            height = bottomY - y;
+        }
+        if (width <= 0 || height <= 0 || (argb >>> 24) == 0) {
+            return;
+        }
+        for (int offset = x + y * this.width, end = offset + height * this.width; offset < end; offset += this.width) {
+            SpanBlender.fill(pixels, offset, width, argb);
+        }
+    }
+
+    public void fillRectangle(Rectangle rectangle, int argb) {
+        fillRectangle(rectangle.x, rectangle.y, rectangle.width, rectangle.height, argb);
+    }
+
+    public void drawPolygon(Polygon polygon, int argb) {
+        for (int i = 0; i < polygon.npoints; i++) {
+            if (i == polygon.npoints - 1) {
+                drawLine(polygon.xpoints[i], polygon.ypoints[i], polygon.xpoints[0], polygon.ypoints[0], argb);
+            } else {
+                drawLine(polygon.xpoints[i], polygon.ypoints[i], polygon.xpoints[i + 1], polygon.ypoints[i + 1], argb);
+            }
+        }
+    }
+
+    public void drawImage(BufferedImage image, int x, int y) {
+        int imageX = 0, imageY = 0;
+        int drawWidth = image.getWidth();
+        int drawHeight = image.getHeight();
+        if (x < topX) {
+            imageX = topX - x;
+            drawWidth -= imageX;
+            x = topX;
+        }
+        if (y < topY) {
+            imageY = topY - y;
+            drawHeight -= imageY;
+            y = topY;
+        }
+        drawWidth = Math.min(drawWidth, bottomX - x);
+        drawHeight = Math.min(drawHeight, bottomY - y);
+        if (drawWidth <= 0 || drawHeight <= 0) {
+            return;
+        }
+        int[] source = image.getRGB(imageX, imageY, drawWidth, drawHeight, null, 0, drawWidth);
+        for (int row = 0, offset = x + y * width; row < drawHeight; row++, offset += width) {
+            SpanBlender.blend(source, row * drawWidth, pixels, offset, drawWidth);
+        }
+    }
+
+    public void drawSprite(Sprite sprite, int x, int y) {
+        int left = Math.max(0, topX - x);
+        int right = Math.min(sprite.getWidth(), bottomX - x);
+        int firstRow = Math.max(0, topY - y);
+        int lastRow = Math.min(sprite.getHeight(), bottomY - y);
+        if (left >= right || firstRow >= lastRow) {
+            return;
+        }
+        int[] source = sprite.pixels;
+        int[] runs = sprite.runs;
+        for (int row = firstRow; row < lastRow; row++) {
+            int sourceOffset = row * sprite.getWidth();
+            int offset = x + (y + row) * width;
+            for (int run = sprite.rowRuns[row] * 3, end = sprite.rowRuns[row + 1] * 3; run < end; run += 3) {
+                int start = Math.max(left, runs[run]);
+                int stop = Math.min(right, runs[run] + runs[run + 1]);
+                if (start >= stop) {
+                    continue;
+                }
+                if (runs[run + 2] != 0) {
+                    System.arraycopy(source, sourceOffset + start, pixels, offset + start, stop - start);
+                } else {
+                    SpanBlender.blendPremultiplied(source, sourceOffset + start, pixels, offset + start, stop - start);
+                }
+            }
+        }
+    }
+
+    public void drawString(String string, Font font, Color color, int x, int y) {
+        GlyphAtlas.forFont(font).drawString(this, string, color.getRGB(), x, y);
+    }
+
+    void drawCoverage(byte[] coverage, int coverageWidth, int coverageHeight, int x, int y, int argb) {
+        int coverageX = 0, coverageY = 0;
+        int drawWidth = coverageWidth;
+        int drawHeight = coverageHeight;
+        if (x < topX) {
+            coverageX = topX - x;
+            drawWidth -= coverageX;
+            x = topX;
+        }
+        if (y < topY) {
+            coverageY = topY - y;
+            drawHeight -= coverageY;
+            y = topY;
+        }
+        drawWidth = Math.min(drawWidth, bottomX - x);
+        drawHeight = Math.min(drawHeight, bottomY - y);
+        int alpha = argb >>> 24;
+        if (drawWidth <= 0 || drawHeight <= 0 || alpha == 0) {
+            return;
+        }
+        int rgb = argb & 0xFFFFFF;
+        for (int row = 0, offset = x + y * width; row < drawHeight; row++, offset += width) {
+            int coverageOffset = coverageX + (coverageY + row) * coverageWidth;
+            for (int column = 0; column < drawWidth; column++) {
+                int value = coverage[coverageOffset + column] & 0xFF;
+                if (value != 0) {
+                    blendPixel(offset + column, ((value * alpha + 0x7F) / 0xFF) << 24 | rgb);
+                }
+            }
+        }
+    }
+
+    private void blendPixel(int offset, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            pixels[offset] = argb & 0xFFFFFF;
+        } else if (alpha != 0) {
+            pixels[offset] = SpanBlender.blend(argb, pixels[offset]);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.scapy.api;
+
+import java.util.Arrays;
+
+/**
+ * Blends spans of pixels into the rasterizer.
+ *
+ * <p>
+ * The red and blue channels of a pixel are blended together with a single
+ * multiplication, since each of their products fits in sixteen bits without
+ * carrying into the other, and the green channel is blended with another.
+ * The results are identical to blending each channel separately. The loops
+ * over constant colours do not branch, which allows the JIT compiler to
+ * vectorize them where the processor supports it.
+ */
+final class SpanBlender {
+
+    private static final int RED_BLUE = 0xFF00FF;
+    private static final int GREEN = 0xFF00;
+
+    private SpanBlender() {
+
+    }
+
+    static int blend(int foreground, int background) {
+        int alpha = foreground >>> 24;
+        int subAlpha = 0xFF - alpha;
+        int redBlue = ((foreground & RED_BLUE) * alpha + (background & RED_BLUE) * subAlpha) >>> 8;
+        int green = ((foreground & GREEN) * alpha + (background & GREEN) * subAlpha) >>> 8;
+        return (redBlue & RED_BLUE) | (green & GREEN);
+    }
+
+    static void fill(int[] pixels, int offset, int length, int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            Arrays.fill(pixels, offset, offset + length, argb & 0xFFFFFF);
+            return;
+        } else if (alpha == 0) {
+            return;
+        }
+        int subAlpha = 0xFF - alpha;
+        int redBlue = (argb & RED_BLUE) * alpha;
+        int green = (argb & GREEN) * alpha;
+        for (int end = offset + length; offset < end; offset++) {
+            int background = pixels[offset];
+            pixels[offset] = (((redBlue + (background & RED_BLUE) * subAlpha) >>> 8) & RED_BLUE)
+                    | (((green + (background & GREEN) * subAlpha) >>> 8) & GREEN);
+        }
+    }
+
+    static void blend(int[] source, int sourceOffset, int[] pixels, int offset, int length) {
+        for (int end = offset + length; offset < end; offset++, sourceOffset++) {
+            int foreground = source[sourceOffset];
+            int alpha = foreground >>> 24;
+            if (alpha == 0xFF) {
+                pixels[offset] = foreground & 0xFFFFFF;
+            } else if (alpha != 0) {
+                pixels[offset] = blend(foreground, pixels[offset]);
+            }
+        }
+    }
+
+    static void blendPremultiplied(int[] source, int sourceOffset, int[] pixels, int offset, int length) {
+        for (int end = offset + length; offset < end; offset++, sourceOffset++) {
+            int foreground = source[sourceOffset];
+            int subAlpha = 0xFF - (foreground >>> 24);
+            int background = pixels[offset];
+            pixels[offset] = (foreground & 0xFFFFFF)
+                    + ((((background & RED_BLUE) * subAlpha) >>> 8) & RED_BLUE)
+                    + ((((background & GREEN) * subAlpha) >>> 8) & GREEN);
+        }
+    }
+}
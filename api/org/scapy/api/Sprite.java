@@ -0,0 +1,98 @@
+package org.scapy.api;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * An image that has been decoded once for repeated drawing onto the
+ * rasterizer of the game.
+ *
+ * <p>
+ * The pixels are stored row by row with premultiplied alpha, and every row is
+ * split into runs of fully opaque and partially transparent pixels. Fully
+ * transparent pixels are not part of any run. Opaque runs are copied into the
+ * rasterizer as they are, and only the remaining runs are blended. A sprite
+ * does not reflect changes made to its image after it was created.
+ */
+public final class Sprite {
+
+    private final int width;
+    private final int height;
+    final int[] pixels;
+    final int[] runs;
+    final int[] rowRuns;
+
+    /**
+     * Creates a sprite from an image.
+     *
+     * @param image the image.
+     */
+    public Sprite(BufferedImage image) {
+        width = image.getWidth();
+        height = image.getHeight();
+        pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        rowRuns = new int[height + 1];
+        int[] runs = new int[Math.max(3, width * 3)];
+        int runCount = 0;
+        for (int y = 0; y < height; y++) {
+            rowRuns[y] = runCount;
+            int rowOffset = y * width;
+            int x = 0;
+            while (x < width) {
+                int alpha = pixels[rowOffset + x] >>> 24;
+                if (alpha == 0) {
+                    x++;
+                    continue;
+                }
+                boolean opaque = alpha == 0xFF;
+                int start = x;
+                while (x < width && isOpaque(pixels[rowOffset + x]) == opaque && (pixels[rowOffset + x] >>> 24) != 0) {
+                    pixels[rowOffset + x] = premultiply(pixels[rowOffset + x]);
+                    x++;
+                }
+                if (runs.length < (runCount + 1) * 3) {
+                    runs = Arrays.copyOf(runs, runs.length * 2);
+                }
+                runs[runCount * 3] = start;
+                runs[runCount * 3 + 1] = x - start;
+                runs[runCount * 3 + 2] = opaque ? 1 : 0;
+                runCount++;
+            }
+        }
+        rowRuns[height] = runCount;
+        this.runs = Arrays.copyOf(runs, runCount * 3);
+    }
+
+    /**
+     * Returns the width of this sprite.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of this sprite.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    private static boolean isOpaque(int argb) {
+        return (argb >>> 24) == 0xFF;
+    }
+
+    private static int premultiply(int argb) {
+        int alpha = argb >>> 24;
+        if (alpha == 0xFF) {
+            return argb & 0xFFFFFF;
+        }
+        int red = (((argb >> 16) & 0xFF) * alpha) >> 8;
+        int green = (((argb >> 8) & 0xFF) * alpha) >> 8;
+        int blue = ((argb & 0xFF) * alpha) >> 8;
+        return alpha << 24 | red << 16 | green << 8 | blue;
+    }
+}
@@ -1,5 +1,6 @@
 package org.scapy;
 
+import org.scapy.core.GameCanvas;
 import org.scapy.core.GameInstance;
 import org.scapy.core.event.EventDispatcher;
 import org.scapy.core.mod.HookDataException;
@@ -77,7 +78,7 @@ public final class Application {
                 JFrame window = new GameWindow();
                 window.setTitle(NAME);
                 window.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
-                window.setVisible(true);
+                window.setVisible(!GameCanvas.RenderMode.HEADLESS.name().equalsIgnoreCase(Settings.get(Settings.DefaultSettings.RENDER_MODE, "")));
             }
         });
         System.out.println("Loading the game...");
@@ -144,6 +145,12 @@ public final class Application {
         if (game != null) {
             game.stop();
             game.getCanvas().cleanupScreenshotResources();
+            try {
+                game.getCanvas().stopRecording();
+            } catch (IOException e) {
+                System.err.println("Could not finish the recording.");
+                e.printStackTrace();
+            }
         }
         SwingUtilities.invokeLater(new Runnable() {
 
@@ -298,5 +305,12 @@ public final class Application {
         if (!checkReadWritePrivileges(screenshotDirectory)) {
             forceVirtual = true;
         }
+        Path recordingDirectory = mainDirectory.resolve("recordings");
+        if (!Files.exists(recordingDirectory)) {
+            Files.createDirectory(recordingDirectory);
+        }
+        if (!checkReadWritePrivileges(recordingDirectory)) {
+            forceVirtual = true;
+        }
     }
 }
\ No newline at end of file
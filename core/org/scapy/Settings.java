@@ -28,7 +28,23 @@ public final class Settings {
         public static final String DEVELOPER_MODE = "developerMode";
         public static final String FAST_SCREENSHOT = "fastScreenshot";
         public static final String SCREENSHOT_FORMAT = "screenshotFormat";
+        public static final String SCREENSHOT_COMPRESSION = "screenshotCompression";
         public static final String LOGOUT_RESIZE = "logoutResize";
+        public static final String GAMEPACK_LOADING = "gamepackLoading";
+        public static final String INJECTION_CACHE = "injectionCache";
+        public static final String PRESERVE_FRAMES = "preserveFrames";
+        public static final String EAGER_DEFINITION = "eagerDefinition";
+        public static final String INVOKEDYNAMIC_CALLBACKS = "invokedynamicCallbacks";
+        public static final String ASYNCHRONOUS_EVENTS = "asynchronousEvents";
+        public static final String EVENT_BUFFER_SIZE = "eventBufferSize";
+        public static final String EVENT_WAIT_STRATEGY = "eventWaitStrategy";
+        public static final String POOLED_MODEL_EVENTS = "pooledModelEvents";
+        public static final String RENDER_DECISION_CACHE = "renderDecisionCache";
+        public static final String CANVAS_PRESENTATION = "canvasPresentation";
+        public static final String RENDER_MODE = "renderMode";
+        public static final String RENDER_THROTTLE = "renderThrottle";
+        public static final String FRAME_METRICS = "frameMetrics";
+        public static final String RECORDING_BUFFERS = "recordingBuffers";
 
         /**
          * Prevents external initialization.
@@ -0,0 +1,140 @@
+package org.scapy.core;
+
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.mod.CallbackSites;
+import org.scapy.core.utils.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how smoothly the game is running.
+ *
+ * <p>
+ * While enabled, this class records the interval between consecutive frames
+ * presented by the game canvas, the interval between consecutive iterations
+ * of the game loop, and the time spent dispatching paint events to listeners.
+ * Each measurement is kept in its own histogram, from which percentiles can be
+ * read at any time. Metrics are initially enabled if the
+ * <code>frameMetrics</code> setting is enabled.
+ *
+ * <p>
+ * The methods in this class are thread-safe.
+ *
+ * @see LatencyHistogram
+ */
+public final class FrameMetrics {
+
+    private static final LatencyHistogram frameIntervals = new LatencyHistogram();
+    private static final LatencyHistogram gameLoopIntervals = new LatencyHistogram();
+    private static final LatencyHistogram paintTimes = new LatencyHistogram();
+    private static volatile boolean enabled = Settings.getBoolean(DefaultSettings.FRAME_METRICS, false);
+    private static long lastFrameTime;
+    private static long lastGameLoopTime;
+
+    /**
+     * Prevents external initialization.
+     */
+    private FrameMetrics() {
+
+    }
+
+    /**
+     * Checks if metrics are being recorded.
+     *
+     * @return <code>true</code> if metrics are being recorded,
+     *         <code>false</code> otherwise.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts or stops recording metrics. Enabling metrics clears any
+     * previously recorded measurements.
+     *
+     * @param enabled whether metrics should be recorded.
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        if (enabled && !FrameMetrics.enabled) {
+            reset();
+        }
+        FrameMetrics.enabled = enabled;
+        CallbackSites.relink();
+    }
+
+    /**
+     * Clears all recorded measurements.
+     */
+    public static synchronized void reset() {
+        frameIntervals.reset();
+        gameLoopIntervals.reset();
+        paintTimes.reset();
+        lastFrameTime = 0;
+        lastGameLoopTime = 0;
+    }
+
+    /**
+     * Returns the histogram of intervals between consecutive frames.
+     *
+     * @return the frame interval histogram.
+     */
+    public static LatencyHistogram getFrameIntervals() {
+        return frameIntervals;
+    }
+
+    /**
+     * Returns the histogram of intervals between consecutive iterations of the
+     * game loop.
+     *
+     * @return the game loop interval histogram.
+     */
+    public static LatencyHistogram getGameLoopIntervals() {
+        return gameLoopIntervals;
+    }
+
+    /**
+     * Returns the histogram of time spent dispatching paint events.
+     *
+     * @return the paint time histogram.
+     */
+    public static LatencyHistogram getPaintTimes() {
+        return paintTimes;
+    }
+
+    /**
+     * Returns the average number of frames per second since metrics were
+     * enabled or last reset.
+     *
+     * @return the frame rate, or <code>0</code> if no frames were recorded.
+     */
+    public static double getFramesPerSecond() {
+        double meanInterval = frameIntervals.getMean(TimeUnit.MICROSECONDS);
+        return meanInterval == 0 ? 0 : TimeUnit.SECONDS.toMicros(1) / meanInterval;
+    }
+
+    static void recordFrame(long time) {
+        if (lastFrameTime != 0) {
+            frameIntervals.record(time - lastFrameTime, TimeUnit.NANOSECONDS);
+        }
+        lastFrameTime = time;
+    }
+
+    static void recordPaint(long duration) {
+        paintTimes.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records an iteration of the game loop. This method is called by the game
+     * loop callback.
+     *
+     * @param time the value of <code>System.nanoTime()</code> at the start of
+     *             the iteration.
+     */
+    public static void recordGameLoop(long time) {
+        if (lastGameLoopTime != 0) {
+            gameLoopIntervals.record(time - lastGameLoopTime, TimeUnit.NANOSECONDS);
+        }
+        lastGameLoopTime = time;
+    }
+}
@@ -0,0 +1,195 @@
+package org.scapy.core;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Records the frames of the game canvas into a compressed frame stream.
+ *
+ * <p>
+ * Capturing a frame only copies the pixels of the back buffer into one of a
+ * fixed number of reusable buffers and queues it; the frames are encoded on a
+ * separate thread. If every buffer is waiting to be encoded, the frame is
+ * dropped rather than allocating more memory.
+ *
+ * <p>
+ * The stream starts with a magic number, a version and the number of
+ * milliseconds since the epoch at which recording started, all of which are
+ * uncompressed. Everything that follows is compressed with the deflate
+ * algorithm and consists of frames, each made up of a type, a timestamp in
+ * nanoseconds relative to the start of the recording, a width, a height and
+ * three bytes of RGB values per pixel. A key frame contains the pixels
+ * themselves, whereas a delta frame contains the exclusive or of its pixels
+ * with the pixels of the previous frame, which is mostly zeros when little
+ * has changed and therefore compresses very well. A key frame is written
+ * whenever the dimensions change and at a regular interval.
+ */
+final class FrameRecorder {
+
+    static final int MAGIC = 0x53524543;
+    static final int VERSION = 1;
+    static final int KEY_FRAME = 0;
+    static final int DELTA_FRAME = 1;
+    private static final int KEY_FRAME_INTERVAL = 120;
+    private static final Frame END = new Frame(null);
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> pendingFrames;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final long startTime = System.nanoTime();
+    private final Thread encoderThread;
+    private final DataOutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private volatile IOException failure;
+
+    FrameRecorder(Path path, int bufferCount) throws IOException {
+        freeFrames = new ArrayBlockingQueue<>(bufferCount);
+        pendingFrames = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            freeFrames.add(new Frame(new int[0]));
+        }
+        BufferedOutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(path));
+        DataOutputStream headerOut = new DataOutputStream(fileOut);
+        headerOut.writeInt(MAGIC);
+        headerOut.writeInt(VERSION);
+        headerOut.writeLong(System.currentTimeMillis());
+        out = new DataOutputStream(new BufferedOutputStream(new DeflaterOutputStream(fileOut, deflater)));
+        encoderThread = new Thread(new Encoder(), "Frame Encoder Thread");
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+    }
+
+    boolean capture(BufferedImage image) {
+        Frame frame = freeFrames.poll();
+        if (frame == null) {
+            droppedFrames.incrementAndGet();
+            return false;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (frame.pixels.length < width * height) {
+            frame.pixels = new int[width * height];
+        }
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+            int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+            int base = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+            int[] data = dataBuffer.getData();
+            for (int y = 0; y < height; y++) {
+                System.arraycopy(data, base + y * stride, frame.pixels, y * width, width);
+            }
+        } else {
+            image.getRGB(0, 0, width, height, frame.pixels, 0, width);
+        }
+        frame.width = width;
+        frame.height = height;
+        frame.timestamp = System.nanoTime() - startTime;
+        pendingFrames.add(frame);
+        return true;
+    }
+
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    void stop() throws IOException {
+        pendingFrames.add(END);
+        try {
+            encoderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Frame {
+
+        int[] pixels;
+        int width;
+        int height;
+        long timestamp;
+
+        Frame(int[] pixels) {
+            this.pixels = pixels;
+        }
+    }
+
+    private final class Encoder implements Runnable {
+
+        private int[] previousPixels = new int[0];
+        private byte[] bytes = new byte[0];
+        private int previousWidth;
+        private int previousHeight;
+        private int framesSinceKeyFrame;
+
+        @Override
+        public void run() {
+            try {
+                Frame frame;
+                while ((frame = pendingFrames.take()) != END) {
+                    try {
+                        if (failure == null) {
+                            encode(frame);
+                        }
+                    } catch (IOException e) {
+                        failure = e;
+                    } finally {
+                        freeFrames.add(frame);
+                    }
+                }
+            } catch (InterruptedException ignored) {
+
+            } finally {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    deflater.end();
+                }
+            }
+        }
+
+        private void encode(Frame frame) throws IOException {
+            int pixelCount = frame.width * frame.height;
+            boolean keyFrame = frame.width != previousWidth || frame.height != previousHeight || framesSinceKeyFrame >= KEY_FRAME_INTERVAL;
+            if (previousPixels.length < pixelCount) {
+                previousPixels = new int[pixelCount];
+                bytes = new byte[pixelCount * 3];
+            }
+            int[] pixels = frame.pixels;
+            for (int i = 0, j = 0; i < pixelCount; i++) {
+                int pixel = pixels[i] & 0xFFFFFF;
+                int value = keyFrame ? pixel : pixel ^ previousPixels[i];
+                previousPixels[i] = pixel;
+                bytes[j++] = (byte) (value >>> 16);
+                bytes[j++] = (byte) (value >>> 8);
+                bytes[j++] = (byte) value;
+            }
+            out.writeByte(keyFrame ? KEY_FRAME : DELTA_FRAME);
+            out.writeLong(frame.timestamp);
+            out.writeInt(frame.width);
+            out.writeInt(frame.height);
+            out.write(bytes, 0, pixelCount * 3);
+            previousWidth = frame.width;
+            previousHeight = frame.height;
+            framesSinceKeyFrame = keyFrame ? 0 : framesSinceKeyFrame + 1;
+        }
+    }
+}
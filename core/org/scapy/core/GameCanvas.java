@@ -6,27 +6,83 @@ import org.scapy.Settings.DefaultSettings;
 import org.scapy.core.event.EventDispatcher;
 import org.scapy.core.event.impl.PaintEvent;
 import org.scapy.core.ui.GameWindow;
+import org.scapy.core.utils.PngEncoder;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
 import javax.swing.JFrame;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import java.awt.AWTEvent;
 import java.awt.Canvas;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GameCanvas extends Canvas {
 
+    /**
+     * The ways in which the game canvas can present the frames drawn by the
+     * game engine.
+     */
+    public enum RenderMode {
+
+        /**
+         * Every frame is painted on and presented.
+         */
+        NORMAL,
+
+        /**
+         * Frames are neither painted on nor presented. The game engine
+         * continues to draw into the back buffer, so screenshots can still
+         * be taken.
+         */
+        MINIMIZED,
+
+        /**
+         * Only every <i>n</i>th frame is painted on and presented, where
+         * <i>n</i> is the throttle interval.
+         */
+        THROTTLED,
+
+        /**
+         * Like <code>MINIMIZED</code>, with the game window hidden. Since
+         * that also hides the window menu, this mode can only be entered
+         * through the <code>renderMode</code> setting or
+         * <code>setRenderMode</code>.
+         */
+        HEADLESS;
+
+        static RenderMode configured() {
+            try {
+                return valueOf(Settings.get(DefaultSettings.RENDER_MODE, NORMAL.name()).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return NORMAL;
+            }
+        }
+    }
+
     /**
      * The default width dimension of the game canvas.
      */
@@ -38,10 +94,92 @@ public class GameCanvas extends Canvas {
     public static final int DEFAULT_HEIGHT = 503;
 
     private static final String DEFAULT_FORMAT = "PNG";
+    private static final int DEFAULT_COMPRESSION = 4;
+    private static final int MAXIMUM_ENCODER_THREADS = 4;
+    private static final String ACCELERATED_PRESENTATION = "accelerated";
+    private static final int DEFAULT_THROTTLE_INTERVAL = 10;
+    private static final int DEFAULT_RECORDING_BUFFERS = 8;
     private static DateFormat dateFormat;
     private static ExecutorService screenshotService;
-    private volatile BufferedImage backBuffer = new BufferedImage(DEFAULT_WIDTH, DEFAULT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    private static ExecutorService encoderService;
+    private final boolean accelerated = ACCELERATED_PRESENTATION.equalsIgnoreCase(Settings.get(DefaultSettings.CANVAS_PRESENTATION, ""))
+            && !GraphicsEnvironment.isHeadless();
+    private volatile BufferedImage backBuffer = createBackBuffer(DEFAULT_WIDTH, DEFAULT_HEIGHT);
     private final AtomicBoolean screenshot = new AtomicBoolean();
+    private BufferedImage graphicsOwner;
+    private Graphics2D backBufferGraphics;
+    private BufferStrategy bufferStrategy;
+    private volatile RenderMode renderMode = RenderMode.NORMAL;
+    private volatile int throttleInterval = Math.max(1, Settings.getNumeric(DefaultSettings.RENDER_THROTTLE, DEFAULT_THROTTLE_INTERVAL).intValue());
+    private int frameCount;
+    private volatile FrameRecorder recorder;
+
+    public GameCanvas() {
+        setRenderMode(RenderMode.configured());
+    }
+
+    /**
+     * Returns the current render mode of this canvas.
+     *
+     * @return the render mode.
+     */
+    public RenderMode getRenderMode() {
+        return renderMode;
+    }
+
+    /**
+     * Changes the render mode of this canvas. The change takes effect with the
+     * next frame. Entering or leaving the <code>HEADLESS</code> mode hides or
+     * shows the game window, respectively.
+     *
+     * @param renderMode the new render mode.
+     * @throws NullPointerException if <code>renderMode</code> is
+     *                              <code>null</code>.
+     */
+    public void setRenderMode(final RenderMode renderMode) {
+        if (renderMode == null) {
+            throw new NullPointerException();
+        }
+        RenderMode previousMode = this.renderMode;
+        this.renderMode = renderMode;
+        if ((previousMode == RenderMode.HEADLESS) != (renderMode == RenderMode.HEADLESS)) {
+            SwingUtilities.invokeLater(new Runnable() {
+
+                @Override
+                public void run() {
+                    JFrame window = GameWindow.getWindow();
+                    if (window != null) {
+                        window.setVisible(renderMode != RenderMode.HEADLESS);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the number of frames per presented frame in the
+     * <code>THROTTLED</code> render mode.
+     *
+     * @return the throttle interval.
+     */
+    public int getThrottleInterval() {
+        return throttleInterval;
+    }
+
+    /**
+     * Sets the number of frames per presented frame in the
+     * <code>THROTTLED</code> render mode.
+     *
+     * @param throttleInterval the throttle interval.
+     * @throws IllegalArgumentException if <code>throttleInterval</code> is
+     *                                  not positive.
+     */
+    public void setThrottleInterval(int throttleInterval) {
+        if (throttleInterval <= 0) {
+            throw new IllegalArgumentException("The throttle interval must be positive.");
+        }
+        this.throttleInterval = throttleInterval;
+    }
 
     /**
      * Signals that a screenshot should be saved. This method does nothing if
@@ -50,7 +188,7 @@ public class GameCanvas extends Canvas {
     public void takeScreenshot() {
         if (!Application.isVirtualMode()) {
             synchronized (GameCanvas.class) {
-                if (dateFormat == null || screenshotService == null) {
+                if (dateFormat == null || screenshotService == null || encoderService == null) {
                     dateFormat = new SimpleDateFormat("dd.MM.YYYY.HHmm.ss");
                     screenshotService = Executors.newSingleThreadExecutor(new ThreadFactory() {
 
@@ -59,6 +197,18 @@ public class GameCanvas extends Canvas {
                             return new Thread(r, "Screenshot Service Thread");
                         }
                     });
+                    int encoderThreads = Math.max(1, Math.min(MAXIMUM_ENCODER_THREADS, Runtime.getRuntime().availableProcessors()));
+                    encoderService = Executors.newFixedThreadPool(encoderThreads, new ThreadFactory() {
+
+                        private final AtomicInteger threadCount = new AtomicInteger();
+
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread thread = new Thread(r, "Screenshot Encoder Thread " + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
                 }
             }
             screenshot.set(true);
@@ -72,31 +222,114 @@ public class GameCanvas extends Canvas {
     public void cleanupScreenshotResources() {
         synchronized (GameCanvas.class) {
             if (screenshotService != null) {
+                if (!screenshotService.isShutdown() && encoderService != null) {
+                    final ExecutorService encoders = encoderService;
+                    screenshotService.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            encoders.shutdown();
+                        }
+                    });
+                }
                 screenshotService.shutdown();
+            } else if (encoderService != null) {
+                encoderService.shutdown();
             }
         }
     }
 
+    /**
+     * Starts recording every frame of this canvas to a new file in the
+     * recordings directory. This method does nothing if a recording is already
+     * in progress.
+     *
+     * @throws IOException           if the recording file cannot be created.
+     * @throws IllegalStateException if the application is running in virtual
+     *                               mode.
+     */
+    public synchronized void startRecording() throws IOException {
+        if (recorder == null) {
+            String fileName = "Recording " + new SimpleDateFormat("dd.MM.YYYY.HHmm.ss").format(new Date()) + ".scr";
+            int bufferCount = Math.max(1, Settings.getNumeric(DefaultSettings.RECORDING_BUFFERS, DEFAULT_RECORDING_BUFFERS).intValue());
+            recorder = new FrameRecorder(Application.getPath("recordings", fileName), bufferCount);
+        }
+    }
+
+    /**
+     * Stops the recording in progress, waiting for every captured frame to be
+     * written. This method does nothing if no recording is in progress.
+     *
+     * @throws IOException if the recording could not be written.
+     */
+    public synchronized void stopRecording() throws IOException {
+        FrameRecorder currentRecorder = recorder;
+        if (currentRecorder != null) {
+            recorder = null;
+            currentRecorder.stop();
+            long droppedFrames = currentRecorder.getDroppedFrames();
+            if (droppedFrames > 0) {
+                System.out.println("Dropped " + droppedFrames + " frames while recording.");
+            }
+        }
+    }
+
+    /**
+     * Checks if a recording is in progress.
+     *
+     * @return <code>true</code> if frames are being recorded,
+     *         <code>false</code> otherwise.
+     */
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
     @Override
     public Graphics getGraphics() {
-        Graphics graphics = backBuffer.getGraphics();
-        EventDispatcher.instance.dispatch(new PaintEvent(graphics));
-        super.getGraphics().drawImage(backBuffer, 0, 0, null);
-        update(graphics);
+        BufferedImage backBuffer = this.backBuffer;
+        if (graphicsOwner != backBuffer) {
+            if (backBufferGraphics != null) {
+                backBufferGraphics.dispose();
+            }
+            backBufferGraphics = backBuffer.createGraphics();
+            graphicsOwner = backBuffer;
+        }
+        Graphics graphics = null;
+        boolean presenting = shouldPresent();
+        if (presenting) {
+            graphics = backBufferGraphics.create();
+            if (FrameMetrics.isEnabled()) {
+                long start = System.nanoTime();
+                FrameMetrics.recordFrame(start);
+                EventDispatcher.instance.dispatch(new PaintEvent(graphics));
+                FrameMetrics.recordPaint(System.nanoTime() - start);
+            } else {
+                EventDispatcher.instance.dispatch(new PaintEvent(graphics));
+            }
+            present(backBuffer);
+        }
+        FrameRecorder currentRecorder = recorder;
+        if (currentRecorder != null) {
+            currentRecorder.capture(backBuffer);
+        }
+        if (presenting) {
+            update(graphics);
+            graphics.dispose();
+        }
         if (screenshot.compareAndSet(true, false)) {
             BufferedImage screenshotImage;
             if (Settings.getBoolean(DefaultSettings.FAST_SCREENSHOT, false)) {
                 screenshotImage = backBuffer;
             } else {
-                screenshotImage = new BufferedImage(backBuffer.getWidth(), backBuffer.getHeight(), backBuffer.getType());
+                int imageType = backBuffer.getType() == BufferedImage.TYPE_CUSTOM ? BufferedImage.TYPE_INT_RGB : backBuffer.getType();
+                screenshotImage = new BufferedImage(backBuffer.getWidth(), backBuffer.getHeight(), imageType);
                 Graphics screenshotGraphics = screenshotImage.getGraphics();
                 screenshotGraphics.drawImage(backBuffer, 0, 0, null);
                 screenshotGraphics.dispose();
             }
             saveScreenshot(screenshotImage);
         }
-        graphics.dispose();
-        return backBuffer.createGraphics();
+        return backBufferGraphics.create();
     }
 
     @Override
@@ -110,7 +343,7 @@ public class GameCanvas extends Canvas {
                     backBuffer = backBuffer.getSubimage(0, 0, width, height);
                 } else {
                     backBuffer.flush();
-                    backBuffer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+                    backBuffer = createBackBuffer(width, height);
                 }
             }
         }
@@ -144,6 +377,56 @@ public class GameCanvas extends Canvas {
         super.processEvent(e);
     }
 
+    private boolean shouldPresent() {
+        switch (renderMode) {
+            case NORMAL:
+                return true;
+            case THROTTLED:
+                if (++frameCount >= throttleInterval) {
+                    frameCount = 0;
+                    return true;
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    private BufferedImage createBackBuffer(int width, int height) {
+        if (accelerated) {
+            GraphicsConfiguration configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+            return configuration.createCompatibleImage(width, height, Transparency.OPAQUE);
+        }
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    private void present(BufferedImage image) {
+        if (accelerated && isDisplayable()) {
+            try {
+                if (bufferStrategy == null) {
+                    createBufferStrategy(2);
+                    bufferStrategy = getBufferStrategy();
+                }
+                do {
+                    do {
+                        Graphics graphics = bufferStrategy.getDrawGraphics();
+                        graphics.drawImage(image, 0, 0, null);
+                        graphics.dispose();
+                    } while (bufferStrategy.contentsRestored());
+                    bufferStrategy.show();
+                } while (bufferStrategy.contentsLost());
+                return;
+            } catch (IllegalStateException e) {
+                bufferStrategy = null;
+            }
+        }
+        Graphics graphics = super.getGraphics();
+        if (graphics != null) {
+            graphics.drawImage(image, 0, 0, null);
+            graphics.dispose();
+        }
+    }
+
     private static synchronized void saveScreenshot(final BufferedImage screenshot) {
         if (!screenshotService.isShutdown()) {
             screenshotService.execute(new Runnable() {
@@ -154,12 +437,13 @@ public class GameCanvas extends Canvas {
                     String extension = formatName.toLowerCase();
                     String fileName = "Screenshot " + dateFormat.format(new Date()) + "." + extension;
                     String filePath = Application.getPath("screenshots", fileName).toString();
+                    int compression = Math.max(0, Math.min(9, Settings.getNumeric(DefaultSettings.SCREENSHOT_COMPRESSION, DEFAULT_COMPRESSION).intValue()));
                     try {
-                        if (!ImageIO.write(screenshot, formatName, new File(filePath))) {
+                        if (!writeScreenshot(screenshot, formatName, compression, new File(filePath))) {
                             String badFormatName = formatName;
                             formatName = DEFAULT_FORMAT;
                             Settings.set(DefaultSettings.SCREENSHOT_FORMAT, formatName);
-                            ImageIO.write(screenshot, formatName, new File(filePath.replace(extension, formatName.toLowerCase())));
+                            writeScreenshot(screenshot, formatName, compression, new File(filePath.replace(extension, formatName.toLowerCase())));
                             Application.showMessage("Unsupported screenshot format " + badFormatName + ". Defaulted to " + formatName + ".", "Screenshot Warning", JOptionPane.WARNING_MESSAGE);
                         }
                     } catch (IOException e) {
@@ -170,4 +454,37 @@ public class GameCanvas extends Canvas {
             });
         }
     }
-}
\ No newline at end of file
+
+    private static boolean writeScreenshot(BufferedImage image, String formatName, int compression, File file) throws IOException {
+        if (formatName.equalsIgnoreCase("PNG")) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+                new PngEncoder(encoderService, compression).write(image, out);
+            }
+            return true;
+        } else if (formatName.equalsIgnoreCase("JPG") || formatName.equalsIgnoreCase("JPEG")) {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+            if (!writers.hasNext()) {
+                return false;
+            }
+            if (image.getColorModel().hasAlpha()) {
+                BufferedImage opaqueImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+                Graphics opaqueGraphics = opaqueImage.getGraphics();
+                opaqueGraphics.drawImage(image, 0, 0, null);
+                opaqueGraphics.dispose();
+                image = opaqueImage;
+            }
+            ImageWriter writer = writers.next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(file)) {
+                ImageWriteParam parameters = writer.getDefaultWriteParam();
+                parameters.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                parameters.setCompressionQuality(1 - compression * 0.05f);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), parameters);
+            } finally {
+                writer.dispose();
+            }
+            return true;
+        }
+        return ImageIO.write(image, formatName, file);
+    }
+}
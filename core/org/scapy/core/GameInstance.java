@@ -4,10 +4,15 @@ import org.scapy.Application;
 import org.scapy.Settings;
 import org.scapy.Settings.DefaultSettings;
 import org.scapy.core.accessors.IClient;
+import org.scapy.core.mod.HookData;
 import org.scapy.core.mod.Injector;
+import org.scapy.core.plugin.FrameMetricsDebugger;
+import org.scapy.core.plugin.PluginManager;
 import org.scapy.core.ui.GameWindow;
 import org.scapy.core.utils.DefinableClassLoader;
+import org.scapy.core.utils.InjectionCache;
 import org.scapy.core.utils.RevisionChecker;
+import org.scapy.core.utils.RevisionProbe;
 import org.scapy.utils.WebUtilities;
 
 import java.applet.Applet;
@@ -16,6 +21,9 @@ import java.net.URL;
 import java.net.UnknownHostException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 public class GameInstance {
 
@@ -32,36 +40,44 @@ public class GameInstance {
         this(Settings.getNumeric(DefaultSettings.INITIAL_WORLD, DEFAULT_WORLD).intValue());
     }
 
-    private void initialize(int initialWorld) throws Exception {
-        String pageAddress = "http://oldschool" + initialWorld + ".runescape.com/";
-        Gamepack<?> gamepack;
-        if (!Application.isVirtualMode()) {
-            Path gamepackPath = Application.getPath("data", "gamepack.jar");
-            if (Files.exists(gamepackPath)) {
-                gamepack = Gamepack.create(gamepackPath);
-                try {
-                    if (!RevisionChecker.check(initialWorld, gamepack.getRevision())) {
-                        gamepack = saveGamepack(gamepackPath, pageAddress);
-                    }
-                } catch (UnknownHostException e) {
-                    System.err.println("Could not connect to world " + initialWorld + ". Attempting world " + DEFAULT_WORLD + "...");
-                    Settings.set(DefaultSettings.INITIAL_WORLD, DEFAULT_WORLD);
-                    initialize(DEFAULT_WORLD);
-                    return;
+    private void initialize(final int initialWorld) throws Exception {
+        final String pageAddress = "http://oldschool" + initialWorld + ".runescape.com/";
+        StartupPipeline pipeline = new StartupPipeline();
+        Gamepack<?> gamepack = null;
+        try {
+            Future<Map<String, String>> parameters = pipeline.submit("page parameters", new Callable<Map<String, String>>() {
+
+                @Override
+                public Map<String, String> call() throws IOException {
+                    return WebUtilities.parseParameters(WebUtilities.downloadPageSource(pageAddress));
                 }
+            });
+            Future<Gamepack<?>> loadedGamepack;
+            if (!Application.isVirtualMode()) {
+                loadedGamepack = submitGamepackStages(pipeline, Application.getPath("data", "gamepack.jar"), initialWorld, pageAddress);
             } else {
-                gamepack = saveGamepack(gamepackPath, pageAddress);
+                loadedGamepack = submitVirtualGamepackStages(pipeline, pageAddress);
             }
-        } else {
-            gamepack = Gamepack.create(downloadGamepack(pageAddress));
+            stub = new GameStub(new URL(pageAddress), StartupPipeline.await(parameters));
+            gamepack = StartupPipeline.await(loadedGamepack);
+        } catch (UnknownHostException e) {
+            if (initialWorld == DEFAULT_WORLD) {
+                throw e;
+            }
+            System.err.println("Could not connect to world " + initialWorld + ". Attempting world " + DEFAULT_WORLD + "...");
+        } finally {
+            pipeline.shutdown();
+        }
+        if (gamepack == null) {
+            Settings.set(DefaultSettings.INITIAL_WORLD, DEFAULT_WORLD);
+            initialize(DEFAULT_WORLD);
+            return;
         }
-        Injector.inject(gamepack);
-        stub = new GameStub(new URL(pageAddress), WebUtilities.parseParameters(WebUtilities.downloadPageSource(pageAddress)));
         start(gamepack);
     }
 
     private void start(Gamepack<?> gamepack) throws Exception {
-        Object clientInstance = new DefinableClassLoader(gamepack.classes).loadClass("client").newInstance();
+        Object clientInstance = new DefinableClassLoader(gamepack).loadClass("client").newInstance();
         clientApplet = (Applet) clientInstance;
         clientAccessor = (IClient) clientInstance;
         clientApplet.setStub(stub);
@@ -69,6 +85,7 @@ public class GameInstance {
         stub.active = true;
         clientApplet.start();
         GameWindow.getWindow().addGameApplet(clientApplet);
+        PluginManager.instance.startPlugin(new FrameMetricsDebugger());
     }
 
     public void stop() {
@@ -95,8 +112,104 @@ public class GameInstance {
         return WebUtilities.download(pageAddress + "gamepack.jar");
     }
 
-    private static Gamepack<?> saveGamepack(Path gamepackPath, String pageAddress) throws IOException {
+    private static void saveGamepack(Path gamepackPath, String pageAddress) throws IOException {
         Files.write(gamepackPath, downloadGamepack(pageAddress));
-        return Gamepack.create(gamepackPath);
+    }
+
+    private static Future<Gamepack<?>> submitGamepackStages(StartupPipeline pipeline,
+                                                           final Path gamepackPath,
+                                                           final int initialWorld,
+                                                           final String pageAddress) {
+        final Future<Integer> revision = pipeline.submit("gamepack update", new Callable<Integer>() {
+
+            @Override
+            public Integer call() throws IOException {
+                if (!Files.exists(gamepackPath) || !RevisionChecker.check(initialWorld, RevisionProbe.probe(gamepackPath))) {
+                    saveGamepack(gamepackPath, pageAddress);
+                }
+                return RevisionProbe.probe(gamepackPath);
+            }
+        });
+        final Future<HookData> hookData = pipeline.submit("hook data loading", new Callable<HookData>() {
+
+            @Override
+            public HookData call() throws Exception {
+                return Injector.loadHookData(StartupPipeline.await(revision));
+            }
+        }, revision);
+        final boolean caching = Settings.getBoolean(DefaultSettings.INJECTION_CACHE, true);
+        final Future<Gamepack<?>> cachedGamepack = pipeline.submit("injection cache lookup", new Callable<Gamepack<?>>() {
+
+            @Override
+            public Gamepack<?> call() throws Exception {
+                if (caching) {
+                    try {
+                        return cacheFor(StartupPipeline.await(revision), StartupPipeline.await(hookData)).load();
+                    } catch (IOException e) {
+                        System.err.println("Could not load the injection cache.");
+                        e.printStackTrace();
+                    }
+                }
+                return null;
+            }
+        }, revision, hookData);
+        final Future<Gamepack<?>> parsedGamepack = pipeline.submit("gamepack parsing", new Callable<Gamepack<?>>() {
+
+            @Override
+            public Gamepack<?> call() throws Exception {
+                return Gamepack.create(gamepackPath, Gamepack.LoadingMode.configured());
+            }
+        }, revision);
+        return pipeline.submit("injection", new Callable<Gamepack<?>>() {
+
+            @Override
+            public Gamepack<?> call() throws Exception {
+                Gamepack<?> gamepack = StartupPipeline.await(cachedGamepack);
+                if (gamepack != null) {
+                    parsedGamepack.cancel(true);
+                    return gamepack;
+                }
+                gamepack = StartupPipeline.await(parsedGamepack);
+                Injector.inject(gamepack, StartupPipeline.await(hookData));
+                if (caching || Settings.getBoolean(DefaultSettings.EAGER_DEFINITION, false)) {
+                    gamepack.writeClasses();
+                }
+                if (caching) {
+                    try {
+                        cacheFor(StartupPipeline.await(revision), StartupPipeline.await(hookData)).save(gamepack.definitions);
+                    } catch (IOException e) {
+                        System.err.println("Could not save the injection cache.");
+                        e.printStackTrace();
+                    }
+                }
+                return gamepack;
+            }
+        }, cachedGamepack);
+    }
+
+    private static Future<Gamepack<?>> submitVirtualGamepackStages(StartupPipeline pipeline, final String pageAddress) {
+        final Future<Gamepack<?>> parsedGamepack = pipeline.submit("gamepack download and parsing", new Callable<Gamepack<?>>() {
+
+            @Override
+            public Gamepack<?> call() throws IOException {
+                return Gamepack.create(downloadGamepack(pageAddress), Gamepack.LoadingMode.configured());
+            }
+        });
+        return pipeline.submit("injection", new Callable<Gamepack<?>>() {
+
+            @Override
+            public Gamepack<?> call() throws Exception {
+                Gamepack<?> gamepack = StartupPipeline.await(parsedGamepack);
+                Injector.inject(gamepack);
+                if (Settings.getBoolean(DefaultSettings.EAGER_DEFINITION, false)) {
+                    gamepack.writeClasses();
+                }
+                return gamepack;
+            }
+        }, parsedGamepack);
+    }
+
+    private static InjectionCache cacheFor(int revision, HookData hookData) {
+        return new InjectionCache(revision, hookData.encode(), Injector.getVariant());
     }
 }
\ No newline at end of file
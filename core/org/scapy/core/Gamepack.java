@@ -1,10 +1,17 @@
 package org.scapy.core;
 
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
 import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
 import org.objectweb.asm.tree.IntInsnNode;
 import org.objectweb.asm.tree.MethodNode;
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.utils.ClassHierarchy;
+import org.scapy.core.utils.RevisionProbe;
+import org.scapy.core.utils.VerifyClassWriter;
 import org.scapy.utils.WebUtilities;
 
 import java.io.File;
@@ -12,33 +19,91 @@ import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Path;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.jar.JarFile;
 
 public abstract class Gamepack<T> {
 
-    public final Map<String, ClassNode> classes = new HashMap<>();
+    /**
+     * The strategies for turning the class files of an archive into
+     * <code>ClassNode</code> objects.
+     */
+    public enum LoadingMode {
+
+        /**
+         * Parses every class file, one after another, on the calling thread.
+         */
+        SEQUENTIAL,
+
+        /**
+         * Parses the class files across the shared worker pool.
+         */
+        PARALLEL,
+
+        /**
+         * Keeps the class files as they are, only parsing a class when it is
+         * requested through <code>getClassNode</code>.
+         */
+        LAZY;
+
+        /**
+         * Returns the loading mode named by the <code>gamepackLoading</code>
+         * setting.
+         *
+         * @return the configured mode, or <code>SEQUENTIAL</code> if the
+         *         setting is absent or names an unknown mode.
+         */
+        public static LoadingMode configured() {
+            String name = Settings.get(DefaultSettings.GAMEPACK_LOADING, SEQUENTIAL.name());
+            try {
+                return valueOf(name.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return SEQUENTIAL;
+            }
+        }
+    }
+
+    private static final int PARSE_THRESHOLD = 32;
+    private static final int FIELD_REFERENCE_TAG = 9;
+    private static ForkJoinPool workerPool;
+    public final Map<String, ClassNode> classes = new ConcurrentHashMap<>();
+    public final Map<String, byte[]> definitions = new ConcurrentHashMap<>();
+    private final Map<String, ClassNode> outlines = new HashMap<>();
+    private final Set<String> modifiedClasses = new HashSet<>();
+    private final boolean preserveFrames = Settings.getBoolean(DefaultSettings.PRESERVE_FRAMES, false);
+    private final LoadingMode mode;
+    private ClassHierarchy hierarchy;
     private int cachedRevision = -1;
 
-    Gamepack(T source) throws IOException {
+    Gamepack(T source, LoadingMode mode) throws IOException {
+        this.mode = mode;
         initializeClasses(source);
     }
 
     public static Gamepack<?> create(Object source) throws IOException {
+        return create(source, LoadingMode.SEQUENTIAL);
+    }
+
+    public static Gamepack<?> create(Object source, LoadingMode mode) throws IOException {
         if (source instanceof byte[]) {
-            return new VirtualGamepack((byte[]) source);
+            return new VirtualGamepack((byte[]) source, mode);
         } else if (source instanceof JarFile) {
-            return new PhysicalGamepack((JarFile) source);
+            return new PhysicalGamepack((JarFile) source, mode);
         } else if (source instanceof File) {
-            return new PhysicalGamepack(new JarFile((File) source));
+            return new PhysicalGamepack(new JarFile((File) source), mode);
         } else if (source instanceof String) {
-            return new PhysicalGamepack(new JarFile((String) source));
+            return new PhysicalGamepack(new JarFile((String) source), mode);
         } else if (source instanceof Path) {
             Path archivePath = (Path) source;
-            return new PhysicalGamepack(new JarFile(archivePath.toFile()));
+            return new PhysicalGamepack(new JarFile(archivePath.toFile()), mode);
         } else if (source instanceof URL) {
-            return create(WebUtilities.download((URL) source));
+            return create(WebUtilities.download((URL) source), mode);
         } else {
             throw new UnsupportedOperationException("Unsupported gamepack source.");
         }
@@ -47,7 +112,12 @@ public abstract class Gamepack<T> {
     public final int getRevision() {
         if (cachedRevision == -1) {
             ClassNode clientClass = classes.get("client");
-            if (clientClass != null) {
+            if (clientClass == null) {
+                byte[] clientFile = definitions.get("client");
+                if (clientFile != null) {
+                    cachedRevision = RevisionProbe.probe(clientFile);
+                }
+            } else {
                 for (MethodNode method : (List<MethodNode>) clientClass.methods) {
                     for (AbstractInsnNode instruction : method.instructions.toArray()) {
                         if (instruction.getNext() != null && instruction.getOpcode() == Opcodes.SIPUSH && instruction.getNext().getOpcode() == Opcodes.SIPUSH) {
@@ -66,5 +136,223 @@ public abstract class Gamepack<T> {
         return cachedRevision;
     }
 
+    public final LoadingMode getLoadingMode() {
+        return mode;
+    }
+
+    public final ClassNode getClassNode(String name) {
+        ClassNode node = classes.get(name);
+        if (node == null) {
+            byte[] classFile = definitions.remove(name);
+            if (classFile != null) {
+                node = parse(classFile, getParsingOptions());
+                classes.put(name, node);
+                outlines.remove(name);
+            }
+        }
+        return node;
+    }
+
+    public final ClassNode getClassOutline(String name) {
+        ClassNode node = classes.get(name);
+        if (node == null) {
+            node = outlines.get(name);
+            if (node == null) {
+                byte[] classFile = definitions.get(name);
+                if (classFile != null) {
+                    node = new ClassNode();
+                    new ClassReader(classFile).accept(node, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                    outlines.put(name, node);
+                }
+            }
+        }
+        return node;
+    }
+
+    public final String getSuperName(String name) {
+        ClassNode node = classes.get(name);
+        if (node != null) {
+            return node.superName;
+        }
+        byte[] classFile = definitions.get(name);
+        return (classFile == null) ? null : new ClassReader(classFile).getSuperName();
+    }
+
+    public final boolean referencesField(String name, String fieldOwner, String fieldName) {
+        String internalOwner = fieldOwner.replace('.', '/');
+        ClassNode node = classes.get(name);
+        if (node != null) {
+            for (MethodNode method : (List<MethodNode>) node.methods) {
+                for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                    if (instruction instanceof FieldInsnNode) {
+                        FieldInsnNode fieldInstruction = (FieldInsnNode) instruction;
+                        if (fieldInstruction.owner.equals(internalOwner) && fieldInstruction.name.equals(fieldName)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+        byte[] classFile = definitions.get(name);
+        if (classFile == null) {
+            return false;
+        }
+        ClassReader reader = new ClassReader(classFile);
+        char[] buffer = new char[reader.getMaxStringLength()];
+        for (int item = 1; item < reader.getItemCount(); item++) {
+            int offset = reader.getItem(item);
+            if (offset > 0 && reader.readByte(offset - 1) == FIELD_REFERENCE_TAG) {
+                int nameAndTypeOffset = reader.getItem(reader.readUnsignedShort(offset + 2));
+                if (fieldName.equals(reader.readUTF8(nameAndTypeOffset, buffer)) && internalOwner.equals(reader.readClass(offset, buffer))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public final Set<String> getClassNames() {
+        Set<String> names = new HashSet<>(classes.keySet());
+        names.addAll(definitions.keySet());
+        return names;
+    }
+
+    public final void markModified(String name) {
+        modifiedClasses.add(name);
+    }
+
+    public final byte[] writeClass(String name) {
+        byte[] classFile = definitions.remove(name);
+        if (classFile == null) {
+            ClassNode node = classes.get(name);
+            if (node != null) {
+                boolean computeFrames = !preserveFrames || modifiedClasses.contains(name);
+                classFile = VerifyClassWriter.toBytes(node, getHierarchy(), computeFrames);
+                classes.remove(name);
+            }
+        }
+        return classFile;
+    }
+
+    public final void writeClasses() {
+        String[] names = classes.keySet().toArray(new String[0]);
+        getHierarchy();
+        if (names.length > PARSE_THRESHOLD) {
+            getWorkerPool().invoke(new WriteTask(names, 0, names.length));
+        } else {
+            for (String name : names) {
+                definitions.put(name, writeClass(name));
+            }
+        }
+        outlines.clear();
+    }
+
+    public final synchronized ClassHierarchy getHierarchy() {
+        if (hierarchy == null) {
+            hierarchy = new ClassHierarchy();
+            for (ClassNode node : classes.values()) {
+                hierarchy.add(node.name, node.superName, (node.access & Opcodes.ACC_INTERFACE) != 0);
+            }
+            for (byte[] classFile : definitions.values()) {
+                ClassReader reader = new ClassReader(classFile);
+                hierarchy.add(reader.getClassName(), reader.getSuperName(), (reader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+            }
+        }
+        return hierarchy;
+    }
+
     protected abstract void initializeClasses(T source) throws IOException;
-}
\ No newline at end of file
+
+    protected final void addClasses(List<byte[]> classFiles) {
+        if (mode == LoadingMode.LAZY) {
+            for (byte[] classFile : classFiles) {
+                definitions.put(new ClassReader(classFile).getClassName().replace('/', '.'), classFile);
+            }
+            return;
+        }
+        ClassNode[] nodes = new ClassNode[classFiles.size()];
+        if (mode == LoadingMode.PARALLEL && nodes.length > PARSE_THRESHOLD) {
+            getWorkerPool().invoke(new ParseTask(classFiles, nodes, 0, nodes.length, getParsingOptions()));
+        } else {
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = parse(classFiles.get(i), getParsingOptions());
+            }
+        }
+        for (ClassNode node : nodes) {
+            classes.put(node.name.replace('/', '.'), node);
+        }
+    }
+
+    static synchronized ForkJoinPool getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = new ForkJoinPool();
+        }
+        return workerPool;
+    }
+
+    private int getParsingOptions() {
+        return preserveFrames ? ClassReader.SKIP_DEBUG : ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+    }
+
+    private static ClassNode parse(byte[] classFile, int parsingOptions) {
+        ClassReader reader = new ClassReader(classFile);
+        ClassNode node = new ClassNode();
+        reader.accept(node, parsingOptions);
+        return node;
+    }
+
+    private final class WriteTask extends RecursiveAction {
+
+        private final String[] names;
+        private final int start;
+        private final int end;
+
+        WriteTask(String[] names, int start, int end) {
+            this.names = names;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARSE_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    definitions.put(names[i], writeClass(names[i]));
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new WriteTask(names, start, middle), new WriteTask(names, middle, end));
+            }
+        }
+    }
+
+    private static final class ParseTask extends RecursiveAction {
+
+        private final List<byte[]> classFiles;
+        private final ClassNode[] nodes;
+        private final int start;
+        private final int end;
+        private final int parsingOptions;
+
+        ParseTask(List<byte[]> classFiles, ClassNode[] nodes, int start, int end, int parsingOptions) {
+            this.classFiles = classFiles;
+            this.nodes = nodes;
+            this.start = start;
+            this.end = end;
+            this.parsingOptions = parsingOptions;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARSE_THRESHOLD) {
+                for (int i = start; i < end; i++) {
+                    nodes[i] = parse(classFiles.get(i), parsingOptions);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new ParseTask(classFiles, nodes, start, middle, parsingOptions), new ParseTask(classFiles, nodes, middle, end, parsingOptions));
+            }
+        }
+    }
+}
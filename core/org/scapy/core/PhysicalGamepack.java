@@ -1,34 +1,37 @@
 package org.scapy.core;
 
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.tree.ClassNode;
+import org.scapy.utils.StreamUtilities;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 
 class PhysicalGamepack extends Gamepack<JarFile> {
 
-    PhysicalGamepack(JarFile archive) throws IOException {
-        super(archive);
+    PhysicalGamepack(JarFile archive, LoadingMode mode) throws IOException {
+        super(archive, mode);
     }
 
     @Override
     protected void initializeClasses(JarFile archive) throws IOException {
+        List<byte[]> classFiles = new ArrayList<>();
         try {
             Enumeration<JarEntry> entries = archive.entries();
             while (entries.hasMoreElements()) {
                 JarEntry entry = entries.nextElement();
                 if (entry.getName().endsWith(".class")) {
-                    ClassReader reader = new ClassReader(archive.getInputStream(entry));
-                    ClassNode node = new ClassNode();
-                    reader.accept(node, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
-                    classes.put(node.name.replace('/', '.'), node);
+                    try (InputStream in = archive.getInputStream(entry)) {
+                        classFiles.add(StreamUtilities.readFully(in));
+                    }
                 }
             }
         } finally {
             archive.close();
         }
+        addClasses(classFiles);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package org.scapy.core;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the stages of the game start-up procedure concurrently. Each stage is
+ * submitted together with the stages it depends on, and only begins once all
+ * of them have completed, so independent stages overlap. The time spent on
+ * each stage, excluding the time spent waiting for its dependencies, is
+ * reported when the stage completes.
+ */
+final class StartupPipeline {
+
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Startup Thread " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    private final long startTime = System.nanoTime();
+
+    <V> Future<V> submit(final String name, final Callable<V> stage, final Future<?>... dependencies) {
+        return executor.submit(new Callable<V>() {
+
+            @Override
+            public V call() throws Exception {
+                for (Future<?> dependency : dependencies) {
+                    await(dependency);
+                }
+                long stageStart = System.nanoTime();
+                V result = stage.call();
+                System.out.println("Finished " + name + " in " + elapsed(stageStart) + " ms.");
+                return result;
+            }
+        });
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        System.out.println("Start-up stages finished in " + elapsed(startTime) + " ms.");
+    }
+
+    static <V> V await(Future<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private static long elapsed(long start) {
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
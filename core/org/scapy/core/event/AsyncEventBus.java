@@ -0,0 +1,240 @@
+package org.scapy.core.event;
+
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.event.AsynchronousEvent.Overflow;
+
+import java.util.EventListener;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Delivers events to listeners on their own threads through a preallocated
+ * ring buffer.
+ *
+ * <p>
+ * Each published event occupies the next slot of the buffer, together with
+ * the listeners that were interested in it at the time of publication. Every
+ * listener is served by a consumer thread with its own cursor into the
+ * buffer, so a slow listener only delays itself. A slot is not reused until
+ * all consumers have moved past it; when the buffer is full, the overflow
+ * policy of the event type decides whether the publishing thread waits or the
+ * event is discarded. A consumer that is removed keeps holding back the buffer
+ * until its thread has actually stopped, so a slot is never reused while it
+ * might still be read.
+ */
+final class AsyncEventBus {
+
+    enum WaitStrategy {
+        BLOCKING,
+        YIELDING,
+        SLEEPING;
+
+        static WaitStrategy configured() {
+            try {
+                return valueOf(Settings.get(DefaultSettings.EVENT_WAIT_STRATEGY, BLOCKING.name()).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return BLOCKING;
+            }
+        }
+    }
+
+    private static final long SLEEP_NANOS = 100000;
+    private static final AtomicInteger consumerCount = new AtomicInteger();
+    private final Entry[] entries;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final AtomicLong published = new AtomicLong(-1);
+    private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+    private final Lock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+
+    AsyncEventBus(int capacity, WaitStrategy waitStrategy) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+        }
+        mask = size - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    synchronized boolean publish(GameEvent event, EventListener[] listeners, Overflow overflow) {
+        long sequence = published.get() + 1;
+        while (sequence - entries.length > getMinimumSequence()) {
+            if (overflow == Overflow.DROP || !waitForCapacity(sequence)) {
+                return false;
+            }
+        }
+        Entry entry = entries[(int) sequence & mask];
+        entry.event = event;
+        entry.listeners = listeners;
+        published.set(sequence);
+        signalAdvance();
+        return true;
+    }
+
+    void addConsumer(EventListener listener) {
+        Consumer consumer;
+        synchronized (consumers) {
+            for (Consumer existing : consumers) {
+                if (existing.running && existing.listener.equals(listener)) {
+                    return;
+                }
+            }
+            consumer = new Consumer(listener, published.get());
+            consumers.add(consumer);
+        }
+        consumer.sequence.set(published.get());
+        Thread thread = new Thread(consumer, "Event Consumer " + consumerCount.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void removeConsumer(EventListener listener) {
+        for (Consumer consumer : consumers) {
+            if (consumer.listener.equals(listener)) {
+                consumer.running = false;
+            }
+        }
+        signalAdvance();
+    }
+
+    void clearConsumers() {
+        for (Consumer consumer : consumers) {
+            consumer.running = false;
+        }
+        signalAdvance();
+    }
+
+    private long getMinimumSequence() {
+        long minimum = published.get();
+        for (Consumer consumer : consumers) {
+            minimum = Math.min(minimum, consumer.sequence.get());
+        }
+        return minimum;
+    }
+
+    private boolean waitForCapacity(long sequence) {
+        switch (waitStrategy) {
+            case BLOCKING:
+                lock.lock();
+                try {
+                    while (sequence - entries.length > getMinimumSequence()) {
+                        advanced.await();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                } finally {
+                    lock.unlock();
+                }
+                break;
+            case YIELDING:
+                Thread.yield();
+                break;
+            case SLEEPING:
+                LockSupport.parkNanos(SLEEP_NANOS);
+                break;
+        }
+        return true;
+    }
+
+    private long waitForPublished(long sequence, Consumer consumer) throws InterruptedException {
+        long available;
+        switch (waitStrategy) {
+            case BLOCKING:
+                lock.lock();
+                try {
+                    while ((available = published.get()) < sequence && consumer.running) {
+                        advanced.await();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                break;
+            case YIELDING:
+                while ((available = published.get()) < sequence && consumer.running) {
+                    Thread.yield();
+                }
+                break;
+            default:
+                while ((available = published.get()) < sequence && consumer.running) {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                }
+                break;
+        }
+        return available;
+    }
+
+    private void signalAdvance() {
+        if (waitStrategy == WaitStrategy.BLOCKING) {
+            lock.lock();
+            try {
+                advanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static boolean contains(EventListener[] listeners, EventListener listener) {
+        for (EventListener candidate : listeners) {
+            if (candidate == listener) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Entry {
+
+        GameEvent event;
+        EventListener[] listeners;
+    }
+
+    private final class Consumer implements Runnable {
+
+        private final EventListener listener;
+        private final AtomicLong sequence;
+        private volatile boolean running = true;
+
+        Consumer(EventListener listener, long sequence) {
+            this.listener = listener;
+            this.sequence = new AtomicLong(sequence);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            try {
+                while (running) {
+                    long available = waitForPublished(next, this);
+                    for (; next <= available && running; next++) {
+                        Entry entry = entries[(int) next & mask];
+                        if (contains(entry.listeners, listener)) {
+                            try {
+                                entry.event.dispatch(listener);
+                            } catch (Exception e) {
+                                e.printStackTrace();
+                            }
+                        }
+                    }
+                    sequence.set(next - 1);
+                    signalAdvance();
+                }
+            } catch (InterruptedException ignored) {
+
+            } finally {
+                consumers.remove(this);
+                signalAdvance();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.scapy.core.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that the annotated type of event may be delivered to its listeners
+ * asynchronously, off the thread that generated it.
+ *
+ * <p>
+ * Asynchronous delivery only takes place when it is enabled through the
+ * <code>asynchronousEvents</code> setting. Events that are not annotated are
+ * always delivered synchronously, which is required for events whose contents
+ * are only valid for the duration of the dispatch (such as the graphics of a
+ * <code>PaintEvent</code>) or whose listeners can influence the game engine
+ * (such as a <code>ModelRenderEvent</code>).
+ *
+ * @author Martin Tuskevicius
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AsynchronousEvent {
+
+    /**
+     * Returns what is done with an event of this type when a listener is too
+     * far behind to accept it.
+     *
+     * @return the overflow policy.
+     */
+    Overflow overflow() default Overflow.BLOCK;
+
+    /**
+     * The actions that can be taken when the event buffer is full.
+     */
+    enum Overflow {
+
+        /**
+         * The dispatching thread waits until there is room for the event.
+         */
+        BLOCK,
+
+        /**
+         * The event is discarded.
+         */
+        DROP
+    }
+}
@@ -1,56 +1,130 @@
 package org.scapy.core.event;
 
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.event.AsynchronousEvent.Overflow;
 import org.scapy.core.event.listeners.*;
+import org.scapy.core.mod.CallbackSites;
 import org.scapy.core.mod.Callbacks;
 
 import java.awt.AWTEvent;
 import java.awt.event.*;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EventListener;
 import java.util.EventObject;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class EventDispatcher {
 
+    private static final int DEFAULT_EVENT_BUFFER_SIZE = 1024;
     public static final EventDispatcher instance = new EventDispatcher();
-    private final Set<EventListener> listeners = Collections.newSetFromMap(new ConcurrentHashMap<EventListener, Boolean>());
+    private final Set<EventListener> listeners = new LinkedHashSet<>();
+    private final ConcurrentMap<Class<?>, DispatchTable> dispatchTables = new ConcurrentHashMap<>();
+    private final AsyncEventBus asyncEventBus;
 
     private EventDispatcher() {
-
+        if (Settings.getBoolean(DefaultSettings.ASYNCHRONOUS_EVENTS, false)) {
+            int capacity = Settings.getNumeric(DefaultSettings.EVENT_BUFFER_SIZE, DEFAULT_EVENT_BUFFER_SIZE).intValue();
+            asyncEventBus = new AsyncEventBus(capacity, AsyncEventBus.WaitStrategy.configured());
+        } else {
+            asyncEventBus = null;
+        }
     }
 
-    public void addListener(EventListener listener) {
+    public synchronized void addListener(EventListener listener) {
         if (listeners.add(listener)) {
+            for (DispatchTable table : dispatchTables.values()) {
+                if (table.accepts(listener)) {
+                    if (table.overflow != null) {
+                        asyncEventBus.addConsumer(listener);
+                    }
+                    dispatchTables.put(table.eventType, table.with(listener));
+                }
+            }
             updateListenerCounters(listener, true);
         }
     }
 
-    public void removeListener(EventListener listener) {
+    public synchronized void removeListener(EventListener listener) {
         if (listeners.remove(listener)) {
+            for (DispatchTable table : dispatchTables.values()) {
+                if (table.accepts(listener)) {
+                    dispatchTables.put(table.eventType, table.without(listener));
+                }
+            }
+            if (asyncEventBus != null) {
+                asyncEventBus.removeConsumer(listener);
+            }
             updateListenerCounters(listener, false);
         }
     }
 
-    public void clearListeners() {
+    public synchronized void clearListeners() {
         listeners.clear();
+        dispatchTables.clear();
+        if (asyncEventBus != null) {
+            asyncEventBus.clearConsumers();
+        }
         clearListenerCounters();
     }
 
     public void dispatch(EventObject event) {
-        for (EventListener listener : listeners) {
-            if (event instanceof GameEvent) {
-                Listenable listenable = event.getClass().getAnnotation(Listenable.class);
-                GameEvent gameEvent = (GameEvent) event;
-                if (listenable == null || listenable.listener().isAssignableFrom(listener.getClass())) {
-                    gameEvent.dispatch(listener);
+        DispatchTable table = dispatchTables.get(event.getClass());
+        if (table == null) {
+            table = createDispatchTable(event.getClass());
+        }
+        EventListener[] interested = table.listeners;
+        if (event instanceof GameEvent) {
+            GameEvent gameEvent = (GameEvent) event;
+            if (table.overflow != null) {
+                if (interested.length > 0) {
+                    asyncEventBus.publish(gameEvent, interested, table.overflow);
                 }
-            } else if (event instanceof AWTEvent) {
+                return;
+            }
+            for (EventListener listener : interested) {
+                gameEvent.dispatch(listener);
+            }
+        } else if (event instanceof AWTEvent) {
+            for (EventListener listener : interested) {
                 dispatchWindowEvent(listener, (AWTEvent) event);
-            } else {
-                throw new UnsupportedOperationException("Unsupported event type.");
             }
+        } else {
+            throw new UnsupportedOperationException("Unsupported event type.");
+        }
+    }
+
+    private synchronized DispatchTable createDispatchTable(Class<?> eventType) {
+        DispatchTable table = dispatchTables.get(eventType);
+        if (table == null) {
+            Class<? extends EventListener> listenerType = EventListener.class;
+            Listenable listenable = eventType.getAnnotation(Listenable.class);
+            if (listenable != null) {
+                listenerType = listenable.listener();
+            }
+            Overflow overflow = null;
+            AsynchronousEvent asynchronousEvent = eventType.getAnnotation(AsynchronousEvent.class);
+            if (asyncEventBus != null && asynchronousEvent != null) {
+                overflow = asynchronousEvent.overflow();
+            }
+            List<EventListener> interested = new ArrayList<>();
+            for (EventListener listener : listeners) {
+                if (listenerType.isInstance(listener)) {
+                    interested.add(listener);
+                    if (overflow != null) {
+                        asyncEventBus.addConsumer(listener);
+                    }
+                }
+            }
+            table = new DispatchTable(eventType, listenerType, overflow, interested.toArray(new EventListener[interested.size()]));
+            dispatchTables.put(eventType, table);
         }
+        return table;
     }
 
     private void updateListenerCounters(EventListener listener, boolean added) {
@@ -61,6 +135,9 @@ public final class EventDispatcher {
         if (listener instanceof ModelRenderListener) {
             Callbacks.modelRenderListenerCount.addAndGet(delta);
         }
+        if (listener instanceof ModelBatchListener) {
+            Callbacks.modelBatchListenerCount.addAndGet(delta);
+        }
         if (listener instanceof GameLoopListener) {
             Callbacks.gameLoopListenerCount.addAndGet(delta);
         }
@@ -70,14 +147,17 @@ public final class EventDispatcher {
         if (listener instanceof SkillListener) {
             Callbacks.skillListenerCount.addAndGet(delta);
         }
+        CallbackSites.relink();
     }
 
     private void clearListenerCounters() {
         Callbacks.regionDrawListenerCount.set(0);
         Callbacks.modelRenderListenerCount.set(0);
+        Callbacks.modelBatchListenerCount.set(0);
         Callbacks.gameLoopListenerCount.set(0);
         Callbacks.settingListenerCount.set(0);
         Callbacks.skillListenerCount.set(0);
+        CallbackSites.relink();
     }
 
     private static void dispatchWindowEvent(EventListener listener, AWTEvent event) {
@@ -155,4 +235,40 @@ public final class EventDispatcher {
             throw new UnsupportedOperationException("Unsupported AWT event type.");
         }
     }
+
+    private static final class DispatchTable {
+
+        private final Class<?> eventType;
+        private final Class<? extends EventListener> listenerType;
+        private final Overflow overflow;
+        private final EventListener[] listeners;
+
+        DispatchTable(Class<?> eventType, Class<? extends EventListener> listenerType, Overflow overflow, EventListener[] listeners) {
+            this.eventType = eventType;
+            this.listenerType = listenerType;
+            this.overflow = overflow;
+            this.listeners = listeners;
+        }
+
+        boolean accepts(EventListener listener) {
+            return listenerType.isInstance(listener);
+        }
+
+        DispatchTable with(EventListener listener) {
+            EventListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+            newListeners[listeners.length] = listener;
+            return new DispatchTable(eventType, listenerType, overflow, newListeners);
+        }
+
+        DispatchTable without(EventListener listener) {
+            EventListener[] newListeners = new EventListener[listeners.length - 1];
+            int index = 0;
+            for (EventListener existing : listeners) {
+                if (!existing.equals(listener)) {
+                    newListeners[index++] = existing;
+                }
+            }
+            return new DispatchTable(eventType, listenerType, overflow, newListeners);
+        }
+    }
 }
\ No newline at end of file
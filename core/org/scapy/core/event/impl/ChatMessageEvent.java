@@ -1,19 +1,32 @@
 package org.scapy.core.event.impl;
 
 import org.scapy.core.accessors.IChatMessage;
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.listeners.ChatMessageListener;
 
 import java.util.EventListener;
 
+@AsynchronousEvent
 @Listenable(listener = ChatMessageListener.class)
 public class ChatMessageEvent extends GameEvent {
 
+    /**
+     * The chat message object of the game. The game keeps changing and reusing
+     * it, so it should not be read from an asynchronous listener; the copied
+     * fields below should be used instead.
+     */
     public final IChatMessage message;
+    public final int channel;
+    public final String sender;
+    public final String text;
 
     public ChatMessageEvent(IChatMessage message) {
         this.message = message;
+        channel = message.getChannel();
+        sender = message.getSender();
+        text = message.getMessage();
     }
 
     @Override
@@ -1,11 +1,13 @@
 package org.scapy.core.event.impl;
 
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.listeners.GameLoopListener;
 
 import java.util.EventListener;
 
+@AsynchronousEvent(overflow = AsynchronousEvent.Overflow.DROP)
 @Listenable(listener = GameLoopListener.class)
 public class GameLoopEvent extends GameEvent {
 
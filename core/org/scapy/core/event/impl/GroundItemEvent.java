@@ -1,11 +1,13 @@
 package org.scapy.core.event.impl;
 
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.listeners.GroundItemListener;
 
 import java.util.EventListener;
 
+@AsynchronousEvent
 @Listenable(listener = GroundItemListener.class)
 public class GroundItemEvent extends GameEvent {
 
@@ -0,0 +1,80 @@
+package org.scapy.core.event.impl;
+
+import org.scapy.core.accessors.IRenderableNode;
+import org.scapy.core.event.GameEvent;
+import org.scapy.core.event.Listenable;
+import org.scapy.core.event.listeners.ModelBatchListener;
+
+import java.util.Arrays;
+import java.util.EventListener;
+
+@Listenable(listener = ModelBatchListener.class)
+public class ModelBatchEvent extends GameEvent {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private IRenderableNode[] models = new IRenderableNode[INITIAL_CAPACITY];
+    private int size;
+
+    ModelBatchEvent() {
+
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public IRenderableNode get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+        return models[index];
+    }
+
+    void add(IRenderableNode model) {
+        if (size == models.length) {
+            models = Arrays.copyOf(models, size * 2);
+        }
+        models[size++] = model;
+    }
+
+    void clear() {
+        Arrays.fill(models, 0, size, null);
+        size = 0;
+    }
+
+    @Override
+    public void dispatch(EventListener listener) {
+        ((ModelBatchListener) listener).onModelBatch(this);
+    }
+
+    /**
+     * Collects the models of a frame into a single event that is reused for
+     * every frame. Only the owner of a batch can add models to its event or
+     * clear it.
+     */
+    public static final class Batch {
+
+        private ModelBatchEvent event;
+
+        public void add(IRenderableNode model) {
+            if (event == null) {
+                event = new ModelBatchEvent();
+            }
+            event.add(model);
+        }
+
+        public boolean isEmpty() {
+            return event == null || event.size == 0;
+        }
+
+        public ModelBatchEvent getEvent() {
+            return event;
+        }
+
+        public void clear() {
+            if (event != null) {
+                event.clear();
+            }
+        }
+    }
+}
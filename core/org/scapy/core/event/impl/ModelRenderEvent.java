@@ -16,8 +16,52 @@ public class ModelRenderEvent extends GameEvent {
         this.model = model;
     }
 
+    /**
+     * Returns the model that the engine began to render. Unlike the
+     * <code>model</code> field, this method also works for pooled events.
+     *
+     * @return the model.
+     */
+    public IRenderableNode getModel() {
+        return model;
+    }
+
     @Override
     public void dispatch(EventListener listener) {
         ((ModelRenderListener) listener).onModelRender(this);
     }
-}
\ No newline at end of file
+
+    /**
+     * Hands out a single event that is reused for every model. The events
+     * handed out by a pool leave the <code>model</code> field empty and can
+     * only be read through <code>getModel</code>, and only the owner of the
+     * pool can change their model.
+     */
+    public static final class Pool {
+
+        private PooledModelRenderEvent event;
+
+        public ModelRenderEvent next(IRenderableNode model) {
+            if (event == null) {
+                event = new PooledModelRenderEvent();
+            }
+            event.model = model;
+            return event;
+        }
+    }
+
+    @Listenable(listener = ModelRenderListener.class)
+    private static final class PooledModelRenderEvent extends ModelRenderEvent {
+
+        private IRenderableNode model;
+
+        PooledModelRenderEvent() {
+            super(null);
+        }
+
+        @Override
+        public IRenderableNode getModel() {
+            return model;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package org.scapy.core.event.impl;
 
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.PolledEvent;
@@ -8,15 +9,20 @@ import org.scapy.core.event.listeners.SettingListener;
 import java.util.EventListener;
 
 @PolledEvent
+@AsynchronousEvent
 @Listenable(listener = SettingListener.class)
 public class SettingEvent extends GameEvent {
 
-    public int[][] changes;
+    public final int[] changes;
 
-    public SettingEvent(int[][] changes) {
+    public SettingEvent(int[] changes) {
         this.changes = changes;
     }
 
+    public int getChangeCount() {
+        return changes.length / 3;
+    }
+
     @Override
     public void dispatch(EventListener listener) {
         ((SettingListener) listener).onSettingChange(this);
@@ -1,5 +1,6 @@
 package org.scapy.core.event.impl;
 
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.PolledEvent;
@@ -8,17 +9,26 @@ import org.scapy.core.event.listeners.SkillListener;
 import java.util.EventListener;
 
 @PolledEvent
+@AsynchronousEvent
 @Listenable(listener = SkillListener.class)
 public class SkillEvent extends GameEvent {
 
-    public final int[][] experienceChanges;
-    public final int[][] levelChanges;
+    public final int[] experienceChanges;
+    public final int[] levelChanges;
 
-    public SkillEvent(int[][] experienceChanges, int[][] levelChanges) {
+    public SkillEvent(int[] experienceChanges, int[] levelChanges) {
         this.experienceChanges = experienceChanges;
         this.levelChanges = levelChanges;
     }
 
+    public int getExperienceChangeCount() {
+        return experienceChanges.length / 3;
+    }
+
+    public int getLevelChangeCount() {
+        return levelChanges.length / 3;
+    }
+
     @Override
     public void dispatch(EventListener listener) {
         ((SkillListener) listener).onSkillChange(this);
@@ -1,12 +1,14 @@
 package org.scapy.core.event.impl;
 
 import org.scapy.core.accessors.IWorld;
+import org.scapy.core.event.AsynchronousEvent;
 import org.scapy.core.event.GameEvent;
 import org.scapy.core.event.Listenable;
 import org.scapy.core.event.listeners.WorldListListener;
 
 import java.util.EventListener;
 
+@AsynchronousEvent
 @Listenable(listener = WorldListListener.class)
 public class WorldListEvent extends GameEvent {
 
@@ -0,0 +1,17 @@
+package org.scapy.core.event.listeners;
+
+import org.scapy.core.event.impl.ModelBatchEvent;
+
+import java.util.EventListener;
+
+/**
+ * The listener interface for receiving model batch events. Model batch events
+ * are received once per frame, when the client finishes drawing the region,
+ * and contain every model that the game engine began to render during that
+ * frame. The received event is reused for every frame, so it should not be
+ * retained once the listener returns.
+ */
+public interface ModelBatchListener extends EventListener {
+
+    void onModelBatch(ModelBatchEvent event);
+}
@@ -9,7 +9,10 @@ import java.util.EventListener;
  * are received when the game engine begins to render a model in the game world.
  * Events received by this listener do not signify that a model has finished
  * rendering, or if it even will; they simply signify that an attempt to render
- * was initiated by the engine.
+ * was initiated by the engine. When the <code>pooledModelEvents</code> setting
+ * is enabled, the received event is reused for every model, so it should not
+ * be retained once the listener returns, and its model must be read through
+ * <code>getModel</code>.
  *
  * @author Martin Tuskevicius
  */
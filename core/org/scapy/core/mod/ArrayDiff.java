@@ -0,0 +1,112 @@
+package org.scapy.core.mod;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the changes of an <code>int</code> array between updates.
+ *
+ * <p>
+ * The last observed values are kept in a snapshot. Changes can either be found
+ * by polling, where the whole array is compared against the snapshot, or be
+ * pushed as individual writes to the array are observed, in which case only
+ * the written indices are marked as pending and compared when the changes are
+ * flushed. Both ways update the same snapshot, so they can be mixed freely:
+ * a periodic poll catches writes that were never pushed, and nothing is
+ * reported twice. An index that is changed and then restored between two
+ * updates is not reported. In both cases, the changes of each update are
+ * recorded into a reusable buffer as flat triples of (index, old value, new
+ * value). No memory is allocated unless the length of the array changes or
+ * more changes occur at once than ever before.
+ */
+final class ArrayDiff {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private int[] lastValues;
+    private int[] changes = new int[INITIAL_CAPACITY * 3];
+    private int changeCount;
+    private boolean[] pending;
+    private int[] pendingIndices;
+    private int pendingCount;
+
+    int update(int[] values) {
+        changeCount = 0;
+        clearPending();
+        if (lastValues == null) {
+            lastValues = values.clone();
+            return 0;
+        }
+        int length = Math.min(values.length, lastValues.length);
+        for (int i = 0; i < length; i++) {
+            int oldValue = lastValues[i];
+            int newValue = values[i];
+            if (oldValue != newValue) {
+                addChange(i, oldValue, newValue);
+                lastValues[i] = newValue;
+            }
+        }
+        if (values.length != lastValues.length) {
+            lastValues = values.clone();
+        }
+        return changeCount;
+    }
+
+    void record(int index) {
+        if (lastValues == null || index < 0 || index >= lastValues.length) {
+            return;
+        }
+        if (pending == null || pending.length != lastValues.length) {
+            pending = new boolean[lastValues.length];
+            pendingIndices = new int[lastValues.length];
+            pendingCount = 0;
+        }
+        if (!pending[index]) {
+            pending[index] = true;
+            pendingIndices[pendingCount++] = index;
+        }
+    }
+
+    int flush(int[] values) {
+        if (lastValues == null || values.length != lastValues.length) {
+            return update(values);
+        }
+        changeCount = 0;
+        for (int i = 0; i < pendingCount; i++) {
+            int index = pendingIndices[i];
+            pending[index] = false;
+            int oldValue = lastValues[index];
+            int newValue = values[index];
+            if (oldValue != newValue) {
+                addChange(index, oldValue, newValue);
+                lastValues[index] = newValue;
+            }
+        }
+        pendingCount = 0;
+        return changeCount;
+    }
+
+    int getChangeCount() {
+        return changeCount;
+    }
+
+    int[] copyChanges() {
+        return Arrays.copyOf(changes, changeCount * 3);
+    }
+
+    private void clearPending() {
+        for (int i = 0; i < pendingCount; i++) {
+            pending[pendingIndices[i]] = false;
+        }
+        pendingCount = 0;
+    }
+
+    private void addChange(int index, int oldValue, int newValue) {
+        int offset = changeCount * 3;
+        if (offset == changes.length) {
+            changes = Arrays.copyOf(changes, changes.length * 2);
+        }
+        changes[offset] = index;
+        changes[offset + 1] = oldValue;
+        changes[offset + 2] = newValue;
+        changeCount++;
+    }
+}
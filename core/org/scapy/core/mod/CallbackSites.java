@@ -0,0 +1,153 @@
+package org.scapy.core.mod;
+
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.FrameMetrics;
+import org.scapy.core.accessors.IRenderableNode;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Links the hot callbacks of the game engine through <code>invokedynamic</code>.
+ *
+ * <p>
+ * Each linkable callback has a single <code>MutableCallSite</code> that is
+ * shared by every instruction calling it. While nothing would observe the
+ * callback, the site is bound to a constant no-op (or, for hooked array
+ * stores, the plain store), which the JIT compiler can eliminate from or
+ * inline into the calling method entirely. The no-op is guarded by a
+ * <code>SwitchPoint</code>; once a listener or filter is registered, the switch
+ * point is invalidated and the site falls through to the regular callback in
+ * <code>Callbacks</code>. When the last listener or filter is removed, the site
+ * is relinked to the no-op behind a fresh switch point.
+ *
+ * <p>
+ * These sites are only used when the <code>invokedynamicCallbacks</code>
+ * setting is enabled; otherwise, callbacks are invoked statically.
+ */
+public final class CallbackSites {
+
+    private static final String BOOTSTRAP_DESCRIPTOR = MethodType.methodType(CallSite.class, MethodHandles.Lookup.class, String.class, MethodType.class).toMethodDescriptorString();
+    private static final Map<String, Site> sites = new HashMap<>();
+    private static final boolean enabled = Settings.getBoolean(DefaultSettings.INVOKEDYNAMIC_CALLBACKS, false);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle doNothing = lookup.findStatic(CallbackSites.class, "doNothing", MethodType.methodType(void.class));
+            MethodHandle alwaysRender = MethodHandles.dropArguments(MethodHandles.constant(boolean.class, true), 0, IRenderableNode.class);
+            addSite(lookup, "onDrawRegion", MethodType.methodType(void.class), doNothing);
+            addSite(lookup, "onRenderModel", MethodType.methodType(boolean.class, IRenderableNode.class), alwaysRender);
+            addSite(lookup, "onGameLoop", MethodType.methodType(void.class), doNothing);
+            addSite(lookup, "onSettingStore", MethodType.methodType(void.class, int[].class, int.class, int.class), MethodHandles.arrayElementSetter(int[].class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        relink();
+    }
+
+    private CallbackSites() {
+
+    }
+
+    public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType type) {
+        Site site = sites.get(name);
+        if (site == null || !site.callSite.type().equals(type)) {
+            throw new IllegalArgumentException("Unknown callback site: " + name + type);
+        }
+        return site.callSite;
+    }
+
+    public static synchronized void relink() {
+        List<MutableCallSite> changed = new ArrayList<>(sites.size());
+        for (Site site : sites.values()) {
+            if (site.relink()) {
+                changed.add(site.callSite);
+            }
+        }
+        if (!changed.isEmpty()) {
+            MutableCallSite.syncAll(changed.toArray(new MutableCallSite[changed.size()]));
+        }
+    }
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static boolean isLinkable(String callbackMethodName) {
+        return enabled && sites.containsKey(callbackMethodName);
+    }
+
+    static AbstractInsnNode generateInstruction(String callbackMethodName) {
+        Site site = sites.get(callbackMethodName);
+        Handle bootstrap = new Handle(Opcodes.H_INVOKESTATIC, Type.getInternalName(CallbackSites.class), "bootstrap", BOOTSTRAP_DESCRIPTOR);
+        return new InvokeDynamicInsnNode(callbackMethodName, site.callSite.type().toMethodDescriptorString(), bootstrap);
+    }
+
+    private static void addSite(MethodHandles.Lookup lookup, String name, MethodType type, MethodHandle idle) throws NoSuchMethodException, IllegalAccessException {
+        sites.put(name, new Site(name, lookup.findStatic(Callbacks.class, name, type), idle));
+    }
+
+    private static boolean isObserved(String name) {
+        switch (name) {
+            case "onDrawRegion":
+                return Callbacks.regionDrawListenerCount.get() > 0 || Callbacks.modelBatchListenerCount.get() > 0;
+            case "onRenderModel":
+                return Callbacks.modelRenderListenerCount.get() > 0 || Callbacks.modelBatchListenerCount.get() > 0 || RenderingFilters.hasFilters();
+            case "onGameLoop":
+                return Callbacks.gameLoopListenerCount.get() > 0 || Callbacks.settingListenerCount.get() > 0 || Callbacks.skillListenerCount.get() > 0
+                        || FrameMetrics.isEnabled();
+            case "onSettingStore":
+                return Callbacks.settingListenerCount.get() > 0;
+            default:
+                return true;
+        }
+    }
+
+    private static void doNothing() {
+
+    }
+
+    private static final class Site {
+
+        private final String name;
+        private final MethodHandle callback;
+        private final MethodHandle idle;
+        private final MutableCallSite callSite;
+        private SwitchPoint idleSwitch;
+
+        Site(String name, MethodHandle callback, MethodHandle idle) {
+            this.name = name;
+            this.callback = callback;
+            this.idle = idle;
+            this.callSite = new MutableCallSite(callback);
+        }
+
+        boolean relink() {
+            boolean observed = isObserved(name);
+            if (observed && idleSwitch != null) {
+                SwitchPoint.invalidateAll(new SwitchPoint[] {idleSwitch});
+                idleSwitch = null;
+            } else if (!observed && idleSwitch == null) {
+                idleSwitch = new SwitchPoint();
+                callSite.setTarget(idleSwitch.guardWithTest(idle, callback));
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -4,6 +4,9 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 import org.scapy.Application;
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.FrameMetrics;
 import org.scapy.core.accessors.IChatMessage;
 import org.scapy.core.accessors.IClient;
 import org.scapy.core.accessors.IRenderableNode;
@@ -12,20 +15,28 @@ import org.scapy.core.event.EventDispatcher;
 import org.scapy.core.event.impl.*;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public final class Callbacks {
 
     public static final AtomicInteger regionDrawListenerCount = new AtomicInteger();
     public static final AtomicInteger modelRenderListenerCount = new AtomicInteger();
+    public static final AtomicInteger modelBatchListenerCount = new AtomicInteger();
     public static final AtomicInteger gameLoopListenerCount = new AtomicInteger();
     public static final AtomicInteger settingListenerCount = new AtomicInteger();
     public static final AtomicInteger skillListenerCount = new AtomicInteger();
     private static final EventDispatcher events = EventDispatcher.instance;
-    private static int[] lastSettings;
-    private static int[] lastExperiences;
-    private static int[] lastLevels;
+    private static final boolean pooledModelEvents = Settings.getBoolean(DefaultSettings.POOLED_MODEL_EVENTS, false);
+    private static final ModelRenderEvent.Pool modelRenderEvents = new ModelRenderEvent.Pool();
+    private static final ModelBatchEvent.Batch modelBatch = new ModelBatchEvent.Batch();
+    private static final ArrayDiff settingDiff = new ArrayDiff();
+    private static final ArrayDiff experienceDiff = new ArrayDiff();
+    private static final ArrayDiff levelDiff = new ArrayDiff();
+    private static final int SETTING_POLL_INTERVAL = 50;
+    private static int[] settingsArray;
+    private static boolean settingStoresHooked;
+    private static boolean settingsTracked;
+    private static int loopsSinceSettingPoll;
 
     private Callbacks() {
 
@@ -35,6 +46,12 @@ public final class Callbacks {
         if (regionDrawListenerCount.get() > 0) {
             events.dispatch(new RegionDrawEvent());
         }
+        if (!modelBatch.isEmpty()) {
+            if (modelBatchListenerCount.get() > 0) {
+                events.dispatch(modelBatch.getEvent());
+            }
+            modelBatch.clear();
+        }
     }
 
     public static void onSortWorlds(IWorld[] worlds) {
@@ -51,7 +68,10 @@ public final class Callbacks {
 
     public static boolean onRenderModel(IRenderableNode model) {
         if (modelRenderListenerCount.get() > 0) {
-            events.dispatch(new ModelRenderEvent(model));
+            events.dispatch(pooledModelEvents ? modelRenderEvents.next(model) : new ModelRenderEvent(model));
+        }
+        if (modelBatchListenerCount.get() > 0) {
+            modelBatch.add(model);
         }
         return RenderingFilters.shouldRender(model);
     }
@@ -61,17 +81,32 @@ public final class Callbacks {
     }
 
     public static void onGameLoop() {
+        if (FrameMetrics.isEnabled()) {
+            FrameMetrics.recordGameLoop(System.nanoTime());
+        }
         if (gameLoopListenerCount.get() > 0) {
             events.dispatch(new GameLoopEvent());
         }
         if (settingListenerCount.get() > 0) {
             checkSettingChanges();
+        } else {
+            settingsTracked = false;
         }
         if (skillListenerCount.get() > 0) {
             checkSkillChanges();
         }
     }
 
+    public static void onSettingStore(int[] array, int index, int value) {
+        if (array == settingsArray && settingsTracked) {
+            if (array[index] != value) {
+                settingDiff.record(index);
+            }
+            settingStoresHooked = true;
+        }
+        array[index] = value;
+    }
+
     static MethodInsnNode generateInstruction(String callbackMethodName) {
         for (Method callbackMethod : Callbacks.class.getMethods()) {
             if (callbackMethod.getName().equals(callbackMethodName)) {
@@ -83,25 +118,25 @@ public final class Callbacks {
 
     private static void checkSettingChanges() {
         int[] settings = Application.getGame().getClientAccessor().getGameSettings();
-        if (settings != null) {
-            if (lastSettings != null) {
-                int length = Math.min(settings.length, lastSettings.length);
-                int[][] changes = new int[length][3];
-                int changeCount = 0;
-                for (int i = 0; i < length; i++) {
-                    int oldValue = settings[i];
-                    int newValue = lastSettings[i];
-                    if (oldValue != newValue) {
-                        changes[changeCount][0] = i;
-                        changes[changeCount][1] = oldValue;
-                        changes[changeCount++][2] = newValue;
-                    }
-                }
-                if (changeCount > 0) {
-                    events.dispatch(new SettingEvent(Arrays.copyOf(changes, changeCount)));
-                }
-            }
-            lastSettings = settings.clone();
+        if (settings == null) {
+            return;
+        } else if (!settingsTracked) {
+            settingDiff.update(settings);
+            settingsArray = settings;
+            settingsTracked = true;
+            loopsSinceSettingPoll = 0;
+            return;
+        }
+        int changeCount;
+        if (settings != settingsArray || !settingStoresHooked || ++loopsSinceSettingPoll >= SETTING_POLL_INTERVAL) {
+            settingsArray = settings;
+            loopsSinceSettingPoll = 0;
+            changeCount = settingDiff.update(settings);
+        } else {
+            changeCount = settingDiff.flush(settings);
+        }
+        if (changeCount > 0) {
+            events.dispatch(new SettingEvent(settingDiff.copyChanges()));
         }
     }
 
@@ -110,33 +145,11 @@ public final class Callbacks {
         int[] experiences = clientAccessor.getStatExperiences();
         int[] levels = clientAccessor.getBaseStats();
         if (experiences != null && levels != null) {
-            if (lastExperiences != null && lastLevels != null) {
-                int length = Math.min(Math.min(experiences.length, lastExperiences.length), Math.min(levels.length, lastLevels.length));
-                int[][] experienceChanges = new int[length][3];
-                int[][] levelChanges = new int[length][3];
-                int experienceChangeCount = 0, levelChangeCount = 0;
-                for (int i = 0; i < length; i++) {
-                    int oldExperience = lastExperiences[i];
-                    int newExperience = experiences[i];
-                    if (oldExperience != newExperience) {
-                        experienceChanges[experienceChangeCount][0] = i;
-                        experienceChanges[experienceChangeCount][1] = oldExperience;
-                        experienceChanges[experienceChangeCount++][2] = newExperience;
-                    }
-                    int oldLevel = lastLevels[i];
-                    int newLevel = levels[i];
-                    if (oldLevel != newLevel) {
-                        levelChanges[levelChangeCount][0] = i;
-                        levelChanges[levelChangeCount][1] = oldLevel;
-                        levelChanges[levelChangeCount++][2] = newLevel;
-                    }
-                }
-                if (experienceChangeCount > 0 || levelChangeCount > 0) {
-                    events.dispatch(new SkillEvent(Arrays.copyOf(experienceChanges, experienceChangeCount), Arrays.copyOf(levelChanges, levelChangeCount)));
-                }
+            int experienceChangeCount = experienceDiff.update(experiences);
+            int levelChangeCount = levelDiff.update(levels);
+            if (experienceChangeCount > 0 || levelChangeCount > 0) {
+                events.dispatch(new SkillEvent(experienceDiff.copyChanges(), levelDiff.copyChanges()));
             }
-            lastExperiences = experiences.clone();
-            lastLevels = levels.clone();
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package org.scapy.core.mod;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.MethodNode;
+
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class ClassIndex {
+
+    final ClassNode clazz;
+    private final Map<String, MethodNode> methods = new HashMap<>();
+    private final Set<String> staticFields = new HashSet<>();
+    private boolean modified;
+
+    ClassIndex(ClassNode clazz) {
+        this.clazz = clazz;
+        for (MethodNode method : (List<MethodNode>) clazz.methods) {
+            methods.put(method.name + method.desc, method);
+        }
+        for (FieldNode field : (List<FieldNode>) clazz.fields) {
+            if (Modifier.isStatic(field.access)) {
+                staticFields.add(field.name);
+            }
+        }
+    }
+
+    MethodNode getMethod(String name, String descriptor) {
+        return methods.get(name + descriptor);
+    }
+
+    boolean isStatic(String fieldName) {
+        return staticFields.contains(fieldName);
+    }
+
+    boolean isModified() {
+        return modified;
+    }
+
+    void markModified() {
+        modified = true;
+    }
+
+    void addMethod(MethodNode method) {
+        clazz.methods.add(method);
+        methods.put(method.name + method.desc, method);
+    }
+}
@@ -0,0 +1,173 @@
+package org.scapy.core.mod;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * A compiled set of hooks for a single revision of the gamepack.
+ *
+ * <p>
+ * Hook data is distributed as text, in which the first token is the revision
+ * and every following line is a hook record: a type character followed by
+ * space-separated parts. The compiled form stores every distinct part once in
+ * a string table and each record as a type followed by a fixed number of
+ * string table indices. Its binary encoding starts with a magic number, so
+ * both forms can be told apart when they are read.
+ */
+public final class HookData {
+
+    private static final int MAGIC = 0x53484B44;
+    private static final int VERSION = 1;
+    private static final int MAX_PARTS = 8;
+    private static final int RECORD_WIDTH = MAX_PARTS + 1;
+    private static final int ABSENT = 0xFFFF;
+    private final int revision;
+    private final String[] strings;
+    private final int[] records;
+
+    private HookData(int revision, String[] strings, int[] records) {
+        this.revision = revision;
+        this.strings = strings;
+        this.records = records;
+    }
+
+    public static HookData compile(String text) {
+        try (Scanner scanner = new Scanner(text)) {
+            int revision = scanner.nextInt();
+            List<String> strings = new ArrayList<>();
+            Map<String, Integer> stringIndices = new HashMap<>();
+            List<int[]> records = new ArrayList<>();
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (!line.isEmpty()) {
+                    String[] parts = line.substring(1).split(" ");
+                    if (parts.length > MAX_PARTS) {
+                        throw new HookDataException("Too many parts in a hook line.");
+                    }
+                    if (line.charAt(0) > 0xFF) {
+                        throw new HookDataException("Unknown line type.");
+                    }
+                    int[] record = new int[RECORD_WIDTH];
+                    record[0] = line.charAt(0);
+                    for (int i = 0; i < MAX_PARTS; i++) {
+                        if (i < parts.length) {
+                            Integer index = stringIndices.get(parts[i]);
+                            if (index == null) {
+                                index = strings.size();
+                                strings.add(parts[i]);
+                                stringIndices.put(parts[i], index);
+                            }
+                            record[i + 1] = index;
+                        } else {
+                            record[i + 1] = ABSENT;
+                        }
+                    }
+                    records.add(record);
+                }
+            }
+            if (strings.size() >= ABSENT) {
+                throw new HookDataException("The hook data has too many distinct parts.");
+            }
+            int[] flatRecords = new int[records.size() * RECORD_WIDTH];
+            for (int i = 0; i < records.size(); i++) {
+                System.arraycopy(records.get(i), 0, flatRecords, i * RECORD_WIDTH, RECORD_WIDTH);
+            }
+            return new HookData(revision, strings.toArray(new String[strings.size()]), flatRecords);
+        }
+    }
+
+    public static HookData decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+                throw new HookDataException("Unsupported binary hook data.");
+            }
+            int revision = in.readInt();
+            String[] strings = new String[in.readUnsignedShort()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.readUTF();
+            }
+            int[] records = new int[in.readInt() * RECORD_WIDTH];
+            for (int i = 0; i < records.length; i += RECORD_WIDTH) {
+                records[i] = in.readUnsignedByte();
+                for (int j = 1; j < RECORD_WIDTH; j++) {
+                    int index = in.readUnsignedShort();
+                    if (index != ABSENT && index >= strings.length) {
+                        throw new HookDataException("Malformed binary hook data.");
+                    }
+                    records[i + j] = index;
+                }
+            }
+            return new HookData(revision, strings, records);
+        } catch (IOException e) {
+            throw new HookDataException("Truncated binary hook data.");
+        }
+    }
+
+    public static HookData read(byte[] data) {
+        if (isBinary(data)) {
+            return decode(data);
+        }
+        return compile(new String(data, StandardCharsets.UTF_8));
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data.length >= 4 && ((data[0] & 0xFF) << 24 | (data[1] & 0xFF) << 16 | (data[2] & 0xFF) << 8 | (data[3] & 0xFF)) == MAGIC;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(revision);
+            out.writeShort(strings.length);
+            for (String string : strings) {
+                out.writeUTF(string);
+            }
+            out.writeInt(size());
+            for (int i = 0; i < records.length; i += RECORD_WIDTH) {
+                out.writeByte(records[i]);
+                for (int j = 1; j < RECORD_WIDTH; j++) {
+                    out.writeShort(records[i + j]);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public int size() {
+        return records.length / RECORD_WIDTH;
+    }
+
+    public char getType(int record) {
+        return (char) records[record * RECORD_WIDTH];
+    }
+
+    public String[] getParts(int record) {
+        int offset = record * RECORD_WIDTH;
+        int count = 0;
+        while (count < MAX_PARTS && records[offset + count + 1] != ABSENT) {
+            count++;
+        }
+        String[] parts = new String[count];
+        for (int i = 0; i < count; i++) {
+            parts[i] = strings[records[offset + i + 1]];
+        }
+        return parts;
+    }
+}
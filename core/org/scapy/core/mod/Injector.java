@@ -1,7 +1,7 @@
 package org.scapy.core.mod;
 
 import org.objectweb.asm.Type;
-import org.objectweb.asm.tree.ClassNode;
+import org.scapy.Application;
 import org.scapy.Settings;
 import org.scapy.Settings.DefaultSettings;
 import org.scapy.core.GameCanvas;
@@ -10,17 +10,33 @@ import org.scapy.core.accessors.IClient;
 import org.scapy.core.accessors.IInteractableObjectDefinition;
 import org.scapy.core.accessors.IItemDefinition;
 import org.scapy.core.accessors.INpcDefinition;
+import org.scapy.core.mod.TransformationEngine.Transformation;
+import org.scapy.utils.StreamUtilities;
 import org.scapy.utils.WebUtilities;
 
 import java.awt.Canvas;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
 import java.util.Map;
-import java.util.Scanner;
 
 public final class Injector {
 
     private static final String DEFAULT_REPOSITORY = "https://www.dropbox.com/s/ztu5buwkos9vr8v/hooks.txt?dl=1";
+    private static final String HOOK_CACHE = "hooks.dat";
     private static final String ACCESSOR_BASE;
+    private static volatile Map<String, Long> transformationTimes = Collections.emptyMap();
 
     static {
         String internalName = Type.getInternalName(IClient.class);
@@ -32,66 +48,132 @@ public final class Injector {
     }
 
     public static void inject(Gamepack<?> gamepack) throws Exception {
-        Map<String, ClassNode> classes = gamepack.classes;
-        try (Scanner hookData = downloadHookData(gamepack.getRevision())) {
-            processHookData(hookData, classes);
-        }
-        subclassCanvas(classes);
+        inject(gamepack, loadHookData(gamepack.getRevision()));
+    }
+
+    public static void inject(Gamepack<?> gamepack, HookData hookData) {
+        TransformationEngine engine = new TransformationEngine(gamepack);
+        processHookData(hookData, gamepack, engine);
+        subclassCanvas(gamepack, engine);
+        long start = System.nanoTime();
+        engine.run();
+        transformationTimes = engine.getTimings();
+        System.out.println("Transformed " + transformationTimes.size() + " classes in " + (System.nanoTime() - start) / 1000000 + " ms.");
+    }
+
+    public static Map<String, Long> getTransformationTimes() {
+        return transformationTimes;
     }
 
-    private static Scanner downloadHookData(int targetRevision) throws IOException {
+    public static String getVariant() {
+        return CallbackSites.isEnabled() ? "dynamic" : "static";
+    }
+
+    public static HookData loadHookData(int targetRevision) throws IOException {
         String repositoryAddress = Settings.get(DefaultSettings.HOOK_REPOSITORY, DEFAULT_REPOSITORY);
-        Scanner scanner = new Scanner(WebUtilities.downloadPageSource(repositoryAddress));
-        int currentRevision = scanner.nextInt();
+        Path cachePath = Application.isVirtualMode() ? null : Application.getPath("data", HOOK_CACHE);
+        CachedHookData cached = null;
+        if (cachePath != null && Files.exists(cachePath)) {
+            try {
+                cached = CachedHookData.read(Files.readAllBytes(cachePath));
+                if (!cached.repositoryAddress.equals(repositoryAddress) || cached.hookData.getRevision() != targetRevision) {
+                    cached = null;
+                }
+            } catch (IOException | HookDataException e) {
+                System.err.println("Could not read the cached hook data.");
+                e.printStackTrace();
+            }
+        }
+        byte[] source;
+        String entityTag;
+        try {
+            URLConnection connection = new URL(repositoryAddress).openConnection();
+            if (cached != null && !cached.entityTag.isEmpty()) {
+                connection.setRequestProperty("If-None-Match", cached.entityTag);
+            }
+            if (cached != null && connection instanceof HttpURLConnection
+                    && ((HttpURLConnection) connection).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return cached.hookData;
+            }
+            source = WebUtilities.download(connection);
+            entityTag = connection.getHeaderField("ETag");
+        } catch (IOException e) {
+            if (cached == null) {
+                throw e;
+            }
+            System.err.println("Could not revalidate the cached hook data. Using it as is.");
+            return cached.hookData;
+        }
+        String contentHash = digest(source);
+        if (cached != null && cached.contentHash.equals(contentHash)) {
+            return cached.hookData;
+        }
+        HookData hookData = HookData.read(source);
+        int currentRevision = hookData.getRevision();
         if (currentRevision != targetRevision) {
             throw new HookDataException("The revision of the hook data is outdated (current: " + currentRevision + " target: " + targetRevision + ").");
         }
-        return scanner;
+        if (cachePath != null) {
+            try {
+                Files.write(cachePath, new CachedHookData(repositoryAddress, entityTag == null ? "" : entityTag, contentHash, hookData).encode());
+            } catch (IOException e) {
+                System.err.println("Could not cache the hook data.");
+                e.printStackTrace();
+            }
+        }
+        return hookData;
     }
 
-    private static void processHookData(Scanner scanner, Map<String, ClassNode> classes) {
+    private static void processHookData(HookData hookData, Gamepack<?> gamepack, TransformationEngine engine) {
         String currentAccessor = null;
-        ClassNode currentClass = null;
-        while (scanner.hasNextLine()) {
-            String line = scanner.nextLine();
-            if (!line.isEmpty()) {
-                String[] parts = line.substring(1).split(" ");
-                switch (line.charAt(0)) {
-                    case '@':
-                        if (parts.length < 2) {
-                            throw new HookDataException("Malformed accessor line.");
-                        }
-                        currentAccessor = parts[0];
-                        currentClass = classes.get(parts[1]);
-                        if (currentClass == null) {
-                            throw new HookDataException("Unknown class specified.");
+        String currentClass = null;
+        for (int record = 0; record < hookData.size(); record++) {
+            String[] parts = hookData.getParts(record);
+            switch (hookData.getType(record)) {
+                case '@':
+                    if (parts.length < 2) {
+                        throw new HookDataException("Malformed accessor line.");
+                    }
+                    currentAccessor = parts[0];
+                    currentClass = parts[1];
+                    if (gamepack.getClassNode(currentClass) == null) {
+                        throw new HookDataException("Unknown class specified.");
+                    }
+                    final String interfaceName = ACCESSOR_BASE + currentAccessor;
+                    engine.schedule(currentClass, new Transformation() {
+
+                        @Override
+                        public void apply(ClassIndex target) {
+                            Transformations.implementInterface(target, interfaceName);
                         }
-                        Transformations.implementInterface(currentClass, ACCESSOR_BASE + currentAccessor);
-                        break;
-                    case '-':
-                        processGetterLine(parts, currentClass, classes);
-                        break;
-                    case '=':
-                        processCallerLine(parts, currentAccessor, currentClass, classes);
-                        break;
-                    default:
-                        throw new HookDataException("Unknown line type.");
-                }
+                    });
+                    break;
+                case '-':
+                    processGetterLine(parts, currentClass, engine);
+                    break;
+                case '=':
+                    processCallerLine(parts, currentAccessor, currentClass, engine);
+                    break;
+                case '!':
+                    processStoreLine(parts, gamepack, engine);
+                    break;
+                default:
+                    throw new HookDataException("Unknown line type.");
             }
         }
     }
 
-    private static void processGetterLine(String[] parts, ClassNode currentClass, Map<String, ClassNode> classes) {
+    private static void processGetterLine(String[] parts, String currentClass, TransformationEngine engine) {
         if (parts[1].equals("BROKEN")) {
             return;
         } else if (parts.length < 5) {
             throw new HookDataException("Malformed getter line.");
         }
-        String getterName       = parts[0];
-        String fieldOwner       = parts[1];
-        String fieldName        = parts[2];
+        final String getterName = parts[0];
+        final String fieldOwner = parts[1];
+        final String fieldName  = parts[2];
         String getterDescriptor = parts[3];
-        String fieldDescriptor  = parts[4];
+        final String fieldDescriptor = parts[4];
         int multiplier          = 1;
         if (parts.length >= 6) {
             multiplier = Integer.parseInt(parts[5]);
@@ -107,84 +189,224 @@ public final class Injector {
         } else {
             getterDescriptor = "()" + getterDescriptor;
         }
-        boolean isStatic = Transformations.isStatic(classes.get(fieldOwner), fieldName);
-        Transformations.addGetter(currentClass, getterName, fieldOwner, fieldName, getterDescriptor, fieldDescriptor, isStatic, multiplier);
+        final String finalGetterDescriptor = getterDescriptor;
+        final boolean isStatic = engine.isStatic(fieldOwner, fieldName);
+        final int finalMultiplier = multiplier;
+        engine.schedule(currentClass, new Transformation() {
+
+            @Override
+            public void apply(ClassIndex target) {
+                Transformations.addGetter(target, getterName, fieldOwner, fieldName, finalGetterDescriptor, fieldDescriptor, isStatic, finalMultiplier);
+            }
+        });
     }
 
-    private static void processCallerLine(String[] parts, String currentAccessor, ClassNode currentClass, Map<String, ClassNode> classes) {
+    private static void processCallerLine(String[] parts, String currentAccessor, String currentClass, TransformationEngine engine) {
         if (parts[1].equals("BROKEN")) {
             return;
         } else if (parts.length < 5) {
             throw new HookDataException("Malformed caller line.");
         }
-        String callerName       = parts[0];
-        String targetOwner      = parts[1];
-        String targetName       = parts[2];
-        String targetDescriptor = parts[3];
-        String dummyValue       = parts[4];
-        ClassNode targetClass   = classes.get(targetOwner);
+        String callerName             = parts[0];
+        String targetOwner            = parts[1];
+        final String targetName       = parts[2];
+        final String targetDescriptor = parts[3];
         switch (callerName) {
             case "drawRegion":
-                Transformations.addDrawRegionCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "sortWorlds":
-                Transformations.addSortWorldsCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "spawnGroundItem":
-                Transformations.addSpawnGroundItemCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "despawnGroundItem":
-                Transformations.addDespawnGroundItemCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "renderModel":
-                Transformations.addRenderModelCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "createChatMessage":
-                Transformations.addChatMessageCallback(targetClass, targetName, targetDescriptor);
-                break;
             case "processGameLogic":
-                Transformations.addGameLoopCallback(targetClass, targetName, targetDescriptor);
-                break;
-            case "displayChatMessage":
-                Transformations.addDisplayChatMessage(currentClass, targetOwner, targetName, targetDescriptor, dummyValue);
-                break;
-            case "getInteractableObjectDefinition":
-                Transformations.addDefinitionGetter(currentClass, IInteractableObjectDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
-                break;
-            case "getItemDefinition":
-                Transformations.addDefinitionGetter(currentClass, IItemDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
-                break;
-            case "getNpcDefinition":
-                Transformations.addDefinitionGetter(currentClass, INpcDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
-                break;
-            case "worldToScreen":
-                Transformations.addWorldToScreen(currentClass, targetOwner, targetName, targetDescriptor, dummyValue);
-                break;
-            case "getTileHeight":
-                Transformations.addGetTileHeight(currentClass, targetOwner, targetName, targetDescriptor, dummyValue);
+                engine.schedule(targetOwner, new CallerTransformation(parts, currentAccessor));
                 break;
             case "transform":
                 switch (currentAccessor) {
                     case "IInteractableObjectDefinition":
-                        Transformations.addObjectDefinitionTransformer(currentClass, targetClass, targetOwner, targetName, targetDescriptor, dummyValue);
-                        break;
                     case "IItemDefinition":
-                        Transformations.addItemDefinitionTransformer(currentClass, targetClass, targetOwner, targetName, targetDescriptor, dummyValue);
-                        break;
                     case "INpcDefinition":
-                        Transformations.addNpcDefinitionTransformer(currentClass, targetClass, targetOwner, targetName, targetDescriptor, dummyValue);
+                        engine.schedule(currentClass, new CallerTransformation(parts, currentAccessor));
+                        engine.schedule(targetOwner, new Transformation() {
+
+                            @Override
+                            public void apply(ClassIndex target) {
+                                Transformations.addDefinitionLocks(target, targetName, targetDescriptor);
+                            }
+                        });
                         break;
                 }
                 break;
+            default:
+                engine.schedule(currentClass, new CallerTransformation(parts, currentAccessor));
+                break;
         }
     }
 
-    private static void subclassCanvas(Map<String, ClassNode> classes) {
-        for (ClassNode clazz : classes.values()) {
-            if (clazz.superName.equals(Type.getInternalName(Canvas.class))) {
-                Transformations.changeSuperclass(clazz, Type.getInternalName(GameCanvas.class));
+    private static void processStoreLine(String[] parts, Gamepack<?> gamepack, TransformationEngine engine) {
+        if (parts[1].equals("BROKEN")) {
+            return;
+        } else if (parts.length < 3) {
+            throw new HookDataException("Malformed store line.");
+        }
+        final String fieldOwner = parts[1];
+        final String fieldName  = parts[2];
+        switch (parts[0]) {
+            case "gameSettings":
+                Transformation transformation = new Transformation() {
+
+                    @Override
+                    public void apply(ClassIndex target) {
+                        Transformations.addSettingStoreHook(target, fieldOwner, fieldName);
+                    }
+                };
+                for (String name : gamepack.getClassNames()) {
+                    if (gamepack.referencesField(name, fieldOwner, fieldName)) {
+                        engine.schedule(name, transformation);
+                    }
+                }
+                break;
+        }
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(data);
+            return String.format("%040x", new BigInteger(1, hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void subclassCanvas(Gamepack<?> gamepack, TransformationEngine engine) {
+        for (String name : gamepack.getClassNames()) {
+            if (Type.getInternalName(Canvas.class).equals(gamepack.getSuperName(name))) {
+                engine.schedule(name, new Transformation() {
+
+                    @Override
+                    public void apply(ClassIndex target) {
+                        Transformations.changeSuperclass(target, Type.getInternalName(GameCanvas.class));
+                    }
+                });
                 return;
             }
         }
     }
-}
\ No newline at end of file
+
+    private static final class CachedHookData {
+
+        private static final int MAGIC = 0x53484B43;
+        private final String repositoryAddress;
+        private final String entityTag;
+        private final String contentHash;
+        private final HookData hookData;
+
+        CachedHookData(String repositoryAddress, String entityTag, String contentHash, HookData hookData) {
+            this.repositoryAddress = repositoryAddress;
+            this.entityTag = entityTag;
+            this.contentHash = contentHash;
+            this.hookData = hookData;
+        }
+
+        static CachedHookData read(byte[] data) throws IOException {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+                if (in.readInt() != MAGIC) {
+                    throw new HookDataException("Unsupported hook data cache.");
+                }
+                String repositoryAddress = in.readUTF();
+                String entityTag = in.readUTF();
+                String contentHash = in.readUTF();
+                return new CachedHookData(repositoryAddress, entityTag, contentHash, HookData.decode(StreamUtilities.readFully(in)));
+            }
+        }
+
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeInt(MAGIC);
+                out.writeUTF(repositoryAddress);
+                out.writeUTF(entityTag);
+                out.writeUTF(contentHash);
+                out.write(hookData.encode());
+            }
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class CallerTransformation implements Transformation {
+
+        private final String currentAccessor;
+        private final String callerName;
+        private final String targetOwner;
+        private final String targetName;
+        private final String targetDescriptor;
+        private final String dummyValue;
+
+        CallerTransformation(String[] parts, String currentAccessor) {
+            this.currentAccessor  = currentAccessor;
+            this.callerName       = parts[0];
+            this.targetOwner      = parts[1];
+            this.targetName       = parts[2];
+            this.targetDescriptor = parts[3];
+            this.dummyValue       = parts[4];
+        }
+
+        @Override
+        public void apply(ClassIndex target) {
+            switch (callerName) {
+                case "drawRegion":
+                    Transformations.addDrawRegionCallback(target, targetName, targetDescriptor);
+                    break;
+                case "sortWorlds":
+                    Transformations.addSortWorldsCallback(target, targetName, targetDescriptor);
+                    break;
+                case "spawnGroundItem":
+                    Transformations.addSpawnGroundItemCallback(target, targetName, targetDescriptor);
+                    break;
+                case "despawnGroundItem":
+                    Transformations.addDespawnGroundItemCallback(target, targetName, targetDescriptor);
+                    break;
+                case "renderModel":
+                    Transformations.addRenderModelCallback(target, targetName, targetDescriptor);
+                    break;
+                case "createChatMessage":
+                    Transformations.addChatMessageCallback(target, targetName, targetDescriptor);
+                    break;
+                case "processGameLogic":
+                    Transformations.addGameLoopCallback(target, targetName, targetDescriptor);
+                    break;
+                case "displayChatMessage":
+                    Transformations.addDisplayChatMessage(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "getInteractableObjectDefinition":
+                    Transformations.addDefinitionGetter(target, IInteractableObjectDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "getItemDefinition":
+                    Transformations.addDefinitionGetter(target, IItemDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "getNpcDefinition":
+                    Transformations.addDefinitionGetter(target, INpcDefinition.class, callerName, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "worldToScreen":
+                    Transformations.addWorldToScreen(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "getTileHeight":
+                    Transformations.addGetTileHeight(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                    break;
+                case "transform":
+                    switch (currentAccessor) {
+                        case "IInteractableObjectDefinition":
+                            Transformations.addObjectDefinitionTransformer(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                            break;
+                        case "IItemDefinition":
+                            Transformations.addItemDefinitionTransformer(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                            break;
+                        case "INpcDefinition":
+                            Transformations.addNpcDefinitionTransformer(target, targetOwner, targetName, targetDescriptor, dummyValue);
+                            break;
+                    }
+                    break;
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package org.scapy.core.mod;
 
+import org.scapy.Settings;
+import org.scapy.Settings.DefaultSettings;
 import org.scapy.core.accessors.IRenderableNode;
 import org.scapy.utils.Filter;
 
-import java.util.Collections;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class for filtering what models get rendered by the game engine.
@@ -22,7 +25,18 @@ import java.util.concurrent.ConcurrentHashMap;
  * Initially, the internal set of filters is empty. Filters can be added or
  * removed using the <code>addFilter</code> or <code>removeFilter</code>
  * methods, respectively. Because the internal collection is a type of
- * <code>Set</code>, duplicate filters are not retained.
+ * <code>Set</code>, duplicate filters are not retained. Whenever the set
+ * changes, it is compiled into an array that is used for every subsequent
+ * check, so checking a model never touches the set itself.
+ *
+ * <p>
+ * If the <code>renderDecisionCache</code> setting is enabled, the outcome of
+ * checking a model is remembered for that model instance until the filters
+ * change. This should only be enabled if all filters make their decisions
+ * based on properties of a model that do not change over its lifetime, and
+ * the game engine does not reuse model instances for different models. The
+ * cache only holds weak references to the models, so it never keeps a model
+ * from being garbage collected.
  *
  * <p>
  * The methods in this class are thread-safe.
@@ -31,7 +45,10 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public final class RenderingFilters {
 
-    private static final Set<Filter<IRenderableNode>> filterSet = Collections.newSetFromMap(new ConcurrentHashMap<Filter<IRenderableNode>, Boolean>());
+    private static final int CACHE_SIZE = 4096;
+    private static final boolean cacheDecisions = Settings.getBoolean(DefaultSettings.RENDER_DECISION_CACHE, false);
+    private static final Set<Filter<IRenderableNode>> filterSet = new LinkedHashSet<>();
+    private static volatile CompiledFilters compiledFilters = new CompiledFilters(toArray(filterSet));
 
     /**
      * Prevents external initialization.
@@ -46,8 +63,13 @@ public final class RenderingFilters {
      * @param filter the filter.
      * @throws NullPointerException if <code>filter</code> is <code>null</code>.
      */
-    public static void addFilter(Filter<IRenderableNode> filter) {
-        filterSet.add(filter);
+    public static synchronized void addFilter(Filter<IRenderableNode> filter) {
+        if (filter == null) {
+            throw new NullPointerException();
+        }
+        if (filterSet.add(filter)) {
+            compile();
+        }
     }
 
     /**
@@ -56,15 +78,25 @@ public final class RenderingFilters {
      * @param filter the filter.
      * @throws NullPointerException if <code>filter</code> is <code>null</code>.
      */
-    public static void removeFilter(Filter<IRenderableNode> filter) {
-        filterSet.remove(filter);
+    public static synchronized void removeFilter(Filter<IRenderableNode> filter) {
+        if (filter == null) {
+            throw new NullPointerException();
+        }
+        if (filterSet.remove(filter)) {
+            compile();
+        }
     }
 
     /**
      * Removes all filters for rendering models.
      */
-    public static void clearFilters() {
+    public static synchronized void clearFilters() {
         filterSet.clear();
+        compile();
+    }
+
+    static boolean hasFilters() {
+        return compiledFilters.filters.length > 0;
     }
 
     /**
@@ -76,11 +108,66 @@ public final class RenderingFilters {
      *         otherwise.
      */
     public static boolean shouldRender(IRenderableNode model) {
-        for (Filter<IRenderableNode> modelFilter : filterSet) {
-            if (!modelFilter.matches(model)) {
-                return false;
+        return compiledFilters.shouldRender(model);
+    }
+
+    private static void compile() {
+        compiledFilters = new CompiledFilters(toArray(filterSet));
+        CallbackSites.relink();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Filter<IRenderableNode>[] toArray(Collection<Filter<IRenderableNode>> filters) {
+        return filters.toArray(new Filter[filters.size()]);
+    }
+
+    private static final class CachedDecision extends WeakReference<IRenderableNode> {
+
+        final boolean decision;
+
+        CachedDecision(IRenderableNode model, boolean decision) {
+            super(model);
+            this.decision = decision;
+        }
+    }
+
+    private static final class CompiledFilters {
+
+        private final Filter<IRenderableNode>[] filters;
+        private final CachedDecision[] cache;
+
+        CompiledFilters(Filter<IRenderableNode>[] filters) {
+            this.filters = filters;
+            if (cacheDecisions && filters.length > 0) {
+                cache = new CachedDecision[CACHE_SIZE];
+            } else {
+                cache = null;
+            }
+        }
+
+        boolean shouldRender(IRenderableNode model) {
+            if (filters.length == 0) {
+                return true;
+            } else if (cache == null) {
+                return evaluate(model);
+            }
+            int slot = System.identityHashCode(model) & (CACHE_SIZE - 1);
+            CachedDecision cached = cache[slot];
+            if (cached != null && cached.get() == model) {
+                return cached.decision;
+            }
+            boolean decision = evaluate(model);
+            cache[slot] = new CachedDecision(model, decision);
+            return decision;
+        }
+
+        private boolean evaluate(IRenderableNode model) {
+            for (Filter<IRenderableNode> filter : filters) {
+                if (!filter.matches(model)) {
+                    return false;
+                }
             }
+            return true;
         }
-        return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package org.scapy.core.mod;
+
+import org.objectweb.asm.tree.ClassNode;
+import org.scapy.core.Gamepack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies transformations to the classes of a gamepack, one class at a time.
+ *
+ * <p>
+ * Transformations are first scheduled against the name of the class they
+ * modify. When the engine runs, the members of each class are indexed once
+ * and every transformation scheduled for that class is applied in a single
+ * pass, in the order in which they were scheduled. The time spent on each
+ * class is recorded, and classes whose existing methods were changed are
+ * marked as modified in the gamepack so that their frames are recomputed.
+ */
+class TransformationEngine {
+
+    interface Transformation {
+
+        void apply(ClassIndex target);
+    }
+
+    private final Gamepack<?> gamepack;
+    private final Map<String, List<Transformation>> scheduled = new LinkedHashMap<>();
+    private final Map<String, ClassIndex> outlines = new HashMap<>();
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+
+    TransformationEngine(Gamepack<?> gamepack) {
+        this.gamepack = gamepack;
+    }
+
+    void schedule(String className, Transformation transformation) {
+        List<Transformation> transformations = scheduled.get(className);
+        if (transformations == null) {
+            transformations = new ArrayList<>();
+            scheduled.put(className, transformations);
+        }
+        transformations.add(transformation);
+    }
+
+    boolean isStatic(String className, String fieldName) {
+        ClassIndex outline = outlines.get(className);
+        if (outline == null) {
+            ClassNode outlineNode = gamepack.getClassOutline(className);
+            if (outlineNode == null) {
+                throw new HookDataException("Unknown class specified.");
+            }
+            outline = new ClassIndex(outlineNode);
+            outlines.put(className, outline);
+        }
+        return outline.isStatic(fieldName);
+    }
+
+    void run() {
+        for (Map.Entry<String, List<Transformation>> entry : scheduled.entrySet()) {
+            long start = System.nanoTime();
+            ClassNode clazz = gamepack.getClassNode(entry.getKey());
+            if (clazz == null) {
+                throw new HookDataException("Unknown class specified.");
+            }
+            ClassIndex target = new ClassIndex(clazz);
+            for (Transformation transformation : entry.getValue()) {
+                transformation.apply(target);
+            }
+            if (target.isModified()) {
+                gamepack.markModified(entry.getKey());
+            }
+            timings.put(entry.getKey(), System.nanoTime() - start);
+        }
+        scheduled.clear();
+        outlines.clear();
+    }
+
+    Map<String, Long> getTimings() {
+        return Collections.unmodifiableMap(timings);
+    }
+}
@@ -7,16 +7,17 @@ import org.scapy.core.accessors.IInteractableObjectDefinition;
 import org.scapy.core.accessors.IItemDefinition;
 import org.scapy.core.accessors.INpcDefinition;
 
-import java.lang.reflect.Modifier;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 class Transformations implements Opcodes {
 
-    static void implementInterface(ClassNode clazz, String interfaceName) {
-        clazz.interfaces.add(interfaceName);
+    static void implementInterface(ClassIndex clazz, String interfaceName) {
+        clazz.clazz.interfaces.add(interfaceName);
     }
 
-    static void addGetter(ClassNode clazz,
+    static void addGetter(ClassIndex clazz,
                           String getterName,
                           String fieldOwner,
                           String fieldName,
@@ -34,106 +35,387 @@ class Transformations implements Opcodes {
             getter.visitInsn(IMUL);
         }
         getter.visitInsn(Type.getType(fieldDescriptor).getOpcode(IRETURN));
-        clazz.methods.add(getter);
+        clazz.addMethod(getter);
     }
 
-    static void addDrawRegionCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList instructions = method.instructions;
-                for (AbstractInsnNode instruction : instructions.toArray()) {
-                    if (instruction.getOpcode() == RETURN) {
-                        instructions.insertBefore(instruction, Callbacks.generateInstruction("onDrawRegion"));
-                    }
+    static void addDrawRegionCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList instructions = method.instructions;
+            for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction.getOpcode() == RETURN) {
+                    instructions.insertBefore(instruction, generateCallback(clazz, "onDrawRegion"));
                 }
-                instructions.add(Callbacks.generateInstruction("onDrawRegion"));
             }
+            instructions.add(generateCallback(clazz, "onDrawRegion"));
+        }
+    }
+
+    static void addSortWorldsCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList callbackInstructions = new InsnList();
+            callbackInstructions.add(new VarInsnNode(ALOAD, 0));
+            callbackInstructions.add(Callbacks.generateInstruction("onSortWorlds"));
+            method.instructions.insert(callbackInstructions);
+        }
+    }
+
+    static void addSpawnGroundItemCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList callbackInstructions = new InsnList();
+            callbackInstructions.add(new VarInsnNode(ILOAD, 2));
+            callbackInstructions.add(new VarInsnNode(ILOAD, 3));
+            callbackInstructions.add(new VarInsnNode(ILOAD, 1));
+            callbackInstructions.add(Callbacks.generateInstruction("onGroundItemSpawn"));
+            method.instructions.insert(callbackInstructions);
+        }
+    }
+
+    static void addDespawnGroundItemCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList callbackInstructions = new InsnList();
+            callbackInstructions.add(new VarInsnNode(ILOAD, 2));
+            callbackInstructions.add(new VarInsnNode(ILOAD, 3));
+            callbackInstructions.add(new VarInsnNode(ILOAD, 1));
+            callbackInstructions.add(Callbacks.generateInstruction("onGroundItemDespawn"));
+            method.instructions.insert(callbackInstructions);
+        }
+    }
+
+    static void addRenderModelCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList callbackInstructions = new InsnList();
+            LabelNode labelNode = new LabelNode();
+            callbackInstructions.add(new VarInsnNode(ALOAD, 0));
+            callbackInstructions.add(generateCallback(clazz, "onRenderModel"));
+            callbackInstructions.add(new InsnNode(ICONST_0));
+            callbackInstructions.add(new JumpInsnNode(IF_ICMPNE, labelNode));
+            callbackInstructions.add(new InsnNode(RETURN));
+            callbackInstructions.add(labelNode);
+            method.instructions.insert(callbackInstructions);
         }
     }
 
-    static void addSortWorldsCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList callbackInstructions = new InsnList();
-                callbackInstructions.add(new VarInsnNode(ALOAD, 0));
-                callbackInstructions.add(Callbacks.generateInstruction("onSortWorlds"));
-                method.instructions.insert(callbackInstructions);
-                break;
+    static void addChatMessageCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList instructions = method.instructions;
+            for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction.getOpcode() == ARETURN) {
+                    InsnList callbackInstructions = new InsnList();
+                    callbackInstructions.add(new InsnNode(DUP));
+                    callbackInstructions.add(Callbacks.generateInstruction("onChatMessage"));
+                    instructions.insertBefore(instruction, callbackInstructions);
+                }
             }
         }
     }
 
-    static void addSpawnGroundItemCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList callbackInstructions = new InsnList();
-                callbackInstructions.add(new VarInsnNode(ILOAD, 2));
-                callbackInstructions.add(new VarInsnNode(ILOAD, 3));
-                callbackInstructions.add(new VarInsnNode(ILOAD, 1));
-                callbackInstructions.add(Callbacks.generateInstruction("onGroundItemSpawn"));
-                method.instructions.insert(callbackInstructions);
-                break;
+    static void addGameLoopCallback(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            method.instructions.insert(generateCallback(clazz, "onGameLoop"));
+        }
+    }
+
+    static void addSettingStoreHook(ClassIndex clazz, String fieldOwner, String fieldName) {
+        for (MethodNode method : (List<MethodNode>) clazz.clazz.methods) {
+            if (!readsField(method, fieldOwner, fieldName)) {
+                continue;
+            }
+            Set<LabelNode> branchTargets = findBranchTargets(method);
+            Set<Integer> aliases = findFieldAliases(method, branchTargets, fieldOwner, fieldName);
+            InsnList instructions = method.instructions;
+            for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction.getOpcode() == IASTORE) {
+                    AbstractInsnNode array = findProducer(instruction, 2, branchTargets);
+                    if (isFieldRead(array, fieldOwner, fieldName)
+                            || (array != null && array.getOpcode() == ALOAD && aliases.contains(((VarInsnNode) array).var))) {
+                        AbstractInsnNode callback = generateCallback(clazz, "onSettingStore");
+                        instructions.set(instruction, callback);
+                        instruction = callback;
+                        clazz.markModified();
+                    }
+                }
             }
         }
     }
 
-    static void addDespawnGroundItemCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList callbackInstructions = new InsnList();
-                callbackInstructions.add(new VarInsnNode(ILOAD, 2));
-                callbackInstructions.add(new VarInsnNode(ILOAD, 3));
-                callbackInstructions.add(new VarInsnNode(ILOAD, 1));
-                callbackInstructions.add(Callbacks.generateInstruction("onGroundItemDespawn"));
-                method.instructions.insert(callbackInstructions);
-                break;
+    private static boolean readsField(MethodNode method, String fieldOwner, String fieldName) {
+        for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+            if (isFieldRead(instruction, fieldOwner, fieldName)) {
+                return true;
             }
         }
+        return false;
     }
 
-    static void addRenderModelCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList callbackInstructions = new InsnList();
-                LabelNode labelNode = new LabelNode();
-                callbackInstructions.add(new VarInsnNode(ALOAD, 0));
-                callbackInstructions.add(Callbacks.generateInstruction("onRenderModel"));
-                callbackInstructions.add(new InsnNode(ICONST_0));
-                callbackInstructions.add(new JumpInsnNode(IF_ICMPNE, labelNode));
-                callbackInstructions.add(new InsnNode(RETURN));
-                callbackInstructions.add(labelNode);
-                method.instructions.insert(callbackInstructions);
-                break;
+    private static boolean isFieldRead(AbstractInsnNode instruction, String fieldOwner, String fieldName) {
+        if (instruction == null || (instruction.getOpcode() != GETSTATIC && instruction.getOpcode() != GETFIELD)) {
+            return false;
+        }
+        FieldInsnNode fieldInstruction = (FieldInsnNode) instruction;
+        return fieldInstruction.owner.equals(fieldOwner) && fieldInstruction.name.equals(fieldName);
+    }
+
+    private static Set<LabelNode> findBranchTargets(MethodNode method) {
+        Set<LabelNode> targets = new HashSet<>();
+        for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+            if (instruction instanceof JumpInsnNode) {
+                targets.add(((JumpInsnNode) instruction).label);
+            } else if (instruction instanceof TableSwitchInsnNode) {
+                targets.add(((TableSwitchInsnNode) instruction).dflt);
+                targets.addAll((List<LabelNode>) ((TableSwitchInsnNode) instruction).labels);
+            } else if (instruction instanceof LookupSwitchInsnNode) {
+                targets.add(((LookupSwitchInsnNode) instruction).dflt);
+                targets.addAll((List<LabelNode>) ((LookupSwitchInsnNode) instruction).labels);
             }
         }
+        for (TryCatchBlockNode block : (List<TryCatchBlockNode>) method.tryCatchBlocks) {
+            targets.add(block.handler);
+        }
+        return targets;
     }
 
-    static void addChatMessageCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList callbackInstructions = new InsnList();
-                callbackInstructions.add(new InsnNode(DUP));
-                callbackInstructions.add(Callbacks.generateInstruction("onChatMessage"));
-                for (AbstractInsnNode instruction : method.instructions.toArray()) {
-                    if (instruction.getOpcode() == ARETURN) {
-                        method.instructions.insertBefore(instruction, callbackInstructions);
-                    }
+    private static Set<Integer> findFieldAliases(MethodNode method, Set<LabelNode> branchTargets, String fieldOwner, String fieldName) {
+        int parameterSlots = Type.getArgumentsAndReturnSizes(method.desc) >> 2;
+        if ((method.access & ACC_STATIC) != 0) {
+            parameterSlots--;
+        }
+        Set<Integer> aliases = new HashSet<>();
+        Set<Integer> excluded = new HashSet<>();
+        for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+            if (instruction.getOpcode() == ASTORE) {
+                int var = ((VarInsnNode) instruction).var;
+                if (var >= parameterSlots && isFieldRead(findProducer(instruction, 0, branchTargets), fieldOwner, fieldName)) {
+                    aliases.add(var);
+                } else {
+                    excluded.add(var);
                 }
-                break;
             }
         }
+        aliases.removeAll(excluded);
+        return aliases;
     }
 
-    static void addGameLoopCallback(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                method.instructions.insert(Callbacks.generateInstruction("onGameLoop"));
-                break;
+    private static AbstractInsnNode findProducer(AbstractInsnNode instruction, int depth, Set<LabelNode> branchTargets) {
+        for (AbstractInsnNode previous = instruction.getPrevious(); previous != null; previous = previous.getPrevious()) {
+            if (previous instanceof LabelNode && branchTargets.contains(previous)) {
+                return null;
+            } else if (previous.getOpcode() == DUP) {
+                depth = depth <= 1 ? 0 : depth - 1;
+                continue;
             }
+            int[] effect = getStackEffect(previous);
+            if (effect == null) {
+                return null;
+            } else if (depth < effect[1]) {
+                return effect[1] == 1 ? previous : null;
+            }
+            depth += effect[0] - effect[1];
+        }
+        return null;
+    }
+
+    private static int[] getStackEffect(AbstractInsnNode instruction) {
+        int opcode = instruction.getOpcode();
+        switch (instruction.getType()) {
+            case AbstractInsnNode.LABEL:
+            case AbstractInsnNode.LINE:
+            case AbstractInsnNode.FRAME:
+            case AbstractInsnNode.IINC_INSN:
+                return new int[] {0, 0};
+            case AbstractInsnNode.INT_INSN:
+                return new int[] {opcode == NEWARRAY ? 1 : 0, 1};
+            case AbstractInsnNode.LDC_INSN:
+                Object constant = ((LdcInsnNode) instruction).cst;
+                return new int[] {0, constant instanceof Long || constant instanceof Double ? 2 : 1};
+            case AbstractInsnNode.VAR_INSN:
+                switch (opcode) {
+                    case ILOAD:
+                    case FLOAD:
+                    case ALOAD:
+                        return new int[] {0, 1};
+                    case LLOAD:
+                    case DLOAD:
+                        return new int[] {0, 2};
+                    case ISTORE:
+                    case FSTORE:
+                    case ASTORE:
+                        return new int[] {1, 0};
+                    case LSTORE:
+                    case DSTORE:
+                        return new int[] {2, 0};
+                    default:
+                        return null;
+                }
+            case AbstractInsnNode.TYPE_INSN:
+                return new int[] {opcode == NEW ? 0 : 1, 1};
+            case AbstractInsnNode.FIELD_INSN:
+                int size = Type.getType(((FieldInsnNode) instruction).desc).getSize();
+                switch (opcode) {
+                    case GETSTATIC:
+                        return new int[] {0, size};
+                    case PUTSTATIC:
+                        return new int[] {size, 0};
+                    case GETFIELD:
+                        return new int[] {1, size};
+                    default:
+                        return new int[] {1 + size, 0};
+                }
+            case AbstractInsnNode.METHOD_INSN:
+            case AbstractInsnNode.INVOKE_DYNAMIC_INSN:
+                String descriptor = instruction instanceof MethodInsnNode ? ((MethodInsnNode) instruction).desc : ((InvokeDynamicInsnNode) instruction).desc;
+                int sizes = Type.getArgumentsAndReturnSizes(descriptor);
+                boolean hasReceiver = opcode != INVOKESTATIC && opcode != INVOKEDYNAMIC;
+                return new int[] {(sizes >> 2) - (hasReceiver ? 0 : 1), sizes & 3};
+            case AbstractInsnNode.MULTIANEWARRAY_INSN:
+                return new int[] {((MultiANewArrayInsnNode) instruction).dims, 1};
+            case AbstractInsnNode.INSN:
+                return getStackEffect(opcode);
+            default:
+                return null;
+        }
+    }
+
+    private static int[] getStackEffect(int opcode) {
+        switch (opcode) {
+            case NOP:
+                return new int[] {0, 0};
+            case ACONST_NULL:
+            case ICONST_M1:
+            case ICONST_0:
+            case ICONST_1:
+            case ICONST_2:
+            case ICONST_3:
+            case ICONST_4:
+            case ICONST_5:
+            case FCONST_0:
+            case FCONST_1:
+            case FCONST_2:
+                return new int[] {0, 1};
+            case LCONST_0:
+            case LCONST_1:
+            case DCONST_0:
+            case DCONST_1:
+                return new int[] {0, 2};
+            case IALOAD:
+            case FALOAD:
+            case AALOAD:
+            case BALOAD:
+            case CALOAD:
+            case SALOAD:
+            case IADD:
+            case ISUB:
+            case IMUL:
+            case IDIV:
+            case IREM:
+            case ISHL:
+            case ISHR:
+            case IUSHR:
+            case IAND:
+            case IOR:
+            case IXOR:
+            case FADD:
+            case FSUB:
+            case FMUL:
+            case FDIV:
+            case FREM:
+            case FCMPL:
+            case FCMPG:
+                return new int[] {2, 1};
+            case LALOAD:
+            case DALOAD:
+                return new int[] {2, 2};
+            case IASTORE:
+            case FASTORE:
+            case AASTORE:
+            case BASTORE:
+            case CASTORE:
+            case SASTORE:
+                return new int[] {3, 0};
+            case LASTORE:
+            case DASTORE:
+                return new int[] {4, 0};
+            case POP:
+            case MONITORENTER:
+            case MONITOREXIT:
+                return new int[] {1, 0};
+            case POP2:
+                return new int[] {2, 0};
+            case LADD:
+            case LSUB:
+            case LMUL:
+            case LDIV:
+            case LREM:
+            case LAND:
+            case LOR:
+            case LXOR:
+            case DADD:
+            case DSUB:
+            case DMUL:
+            case DDIV:
+            case DREM:
+                return new int[] {4, 2};
+            case LSHL:
+            case LSHR:
+            case LUSHR:
+                return new int[] {3, 2};
+            case INEG:
+            case FNEG:
+            case I2F:
+            case F2I:
+            case I2B:
+            case I2C:
+            case I2S:
+            case ARRAYLENGTH:
+                return new int[] {1, 1};
+            case LNEG:
+            case DNEG:
+            case L2D:
+            case D2L:
+                return new int[] {2, 2};
+            case I2L:
+            case I2D:
+            case F2L:
+            case F2D:
+                return new int[] {1, 2};
+            case L2I:
+            case L2F:
+            case D2I:
+            case D2F:
+                return new int[] {2, 1};
+            case LCMP:
+            case DCMPL:
+            case DCMPG:
+                return new int[] {4, 1};
+            default:
+                return null;
         }
     }
 
-    static void addDisplayChatMessage(ClassNode clazz,
+    private static AbstractInsnNode generateCallback(ClassIndex clazz, String callbackMethodName) {
+        if (!CallbackSites.isLinkable(callbackMethodName)) {
+            return Callbacks.generateInstruction(callbackMethodName);
+        }
+        if ((clazz.clazz.version & 0xFFFF) < V1_7) {
+            clazz.clazz.version = V1_7;
+        }
+        return CallbackSites.generateInstruction(callbackMethodName);
+    }
+
+    static void addDisplayChatMessage(ClassIndex clazz,
                                       String targetOwner,
                                       String targetName,
                                       String targetDescriptor,
@@ -145,10 +427,10 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKESTATIC, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(RETURN);
-        clazz.methods.add(caller);
+        clazz.addMethod(caller);
     }
 
-    static void addDefinitionGetter(ClassNode clazz,
+    static void addDefinitionGetter(ClassIndex clazz,
                                     Class<?> definitionClass,
                                     String callerName,
                                     String targetOwner,
@@ -160,10 +442,10 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKESTATIC, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(ARETURN);
-        clazz.methods.add(caller);
+        clazz.addMethod(caller);
     }
 
-    static void addWorldToScreen(ClassNode clazz,
+    static void addWorldToScreen(ClassIndex clazz,
                                  String targetOwner,
                                  String targetName,
                                  String targetDescriptor,
@@ -175,10 +457,10 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKESTATIC, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(RETURN);
-        clazz.methods.add(caller);
+        clazz.addMethod(caller);
     }
 
-    static void addGetTileHeight(ClassNode clazz,
+    static void addGetTileHeight(ClassIndex clazz,
                                  String targetOwner,
                                  String targetName,
                                  String targetDescriptor,
@@ -190,11 +472,10 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKESTATIC, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(IRETURN);
-        clazz.methods.add(caller);
+        clazz.addMethod(caller);
     }
 
-    static void addObjectDefinitionTransformer(ClassNode clazz,
-                                               ClassNode targetClass,
+    static void addObjectDefinitionTransformer(ClassIndex clazz,
                                                String targetOwner,
                                                String targetName,
                                                String targetDescriptor,
@@ -204,12 +485,10 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKEVIRTUAL, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(ARETURN);
-        clazz.methods.add(caller);
-        addDefinitionLocks(targetClass, targetName, targetDescriptor);
+        clazz.addMethod(caller);
     }
 
-    static void addNpcDefinitionTransformer(ClassNode clazz,
-                                            ClassNode targetClass,
+    static void addNpcDefinitionTransformer(ClassIndex clazz,
                                             String targetOwner,
                                             String targetName,
                                             String targetDescriptor,
@@ -219,73 +498,60 @@ class Transformations implements Opcodes {
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKEVIRTUAL, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(ARETURN);
-        clazz.methods.add(caller);
-        addDefinitionLocks(targetClass, targetName, targetDescriptor);
+        clazz.addMethod(caller);
     }
 
-    static void addItemDefinitionTransformer(ClassNode clazz,
-                                               ClassNode targetClass,
-                                               String targetOwner,
-                                               String targetName,
-                                               String targetDescriptor,
-                                               String dummyValue) {
+    static void addItemDefinitionTransformer(ClassIndex clazz,
+                                             String targetOwner,
+                                             String targetName,
+                                             String targetDescriptor,
+                                             String dummyValue) {
         MethodNode caller = new MethodNode(ACC_PUBLIC, "transform", generateDescriptor(IItemDefinition.class, int.class), null, null);
         caller.visitVarInsn(ALOAD, 0);
         caller.visitVarInsn(ILOAD, 1);
         caller.visitLdcInsn(getDummy(targetDescriptor, dummyValue));
         caller.visitMethodInsn(INVOKEVIRTUAL, targetOwner, targetName, targetDescriptor, false);
         caller.visitInsn(ARETURN);
-        clazz.methods.add(caller);
-        addDefinitionLocks(targetClass, targetName, targetDescriptor);
+        clazz.addMethod(caller);
     }
 
-    static void changeSuperclass(ClassNode clazz, String newSuperclass) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            for (AbstractInsnNode instruction : method.instructions.toArray()) {
-                if (instruction.getOpcode() == INVOKESPECIAL) {
-                    MethodInsnNode methodInstruction = (MethodInsnNode) instruction;
-                    if (methodInstruction.owner.equals(clazz.superName)) {
-                        methodInstruction.owner = newSuperclass;
-                        break;
-                    }
+    static void addDefinitionLocks(ClassIndex clazz, String targetName, String targetDescriptor) {
+        MethodNode method = clazz.getMethod(targetName, targetDescriptor);
+        if (method != null) {
+            clazz.markModified();
+            InsnList instructions = method.instructions;
+            InsnList lockInstructions = new InsnList();
+            lockInstructions.add(new VarInsnNode(ALOAD, 0));
+            lockInstructions.add(new InsnNode(MONITORENTER));
+            instructions.insert(lockInstructions);
+            for (AbstractInsnNode instruction = instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction.getOpcode() == ARETURN) {
+                    lockInstructions.add(new VarInsnNode(ALOAD, 0));
+                    lockInstructions.add(new InsnNode(MONITOREXIT));
+                    instructions.insertBefore(instruction, lockInstructions);
                 }
             }
+            lockInstructions.add(new VarInsnNode(ALOAD, 0));
+            lockInstructions.add(new InsnNode(MONITOREXIT));
+            instructions.insert(instructions.getLast(), lockInstructions);
         }
-        clazz.superName = newSuperclass;
     }
 
-    static boolean isStatic(ClassNode clazz, String fieldName) {
-        for (FieldNode field : (List<FieldNode>) clazz.fields) {
-            if (field.name.equals(fieldName) && Modifier.isStatic(field.access)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private static void addDefinitionLocks(ClassNode clazz, String targetName, String targetDescriptor) {
-        for (MethodNode method : (List<MethodNode>) clazz.methods) {
-            if (method.name.equals(targetName) && method.desc.equals(targetDescriptor)) {
-                InsnList instructions = method.instructions;
-                InsnList lockInstructions = new InsnList();
-                lockInstructions.add(new VarInsnNode(ALOAD, 0));
-                lockInstructions.add(new InsnNode(MONITORENTER));
-                instructions.insert(lockInstructions);
-                for (AbstractInsnNode instruction : instructions.toArray()) {
-                    if (instruction.getOpcode() == ARETURN) {
-                        lockInstructions.clear();
-                        lockInstructions.add(new VarInsnNode(ALOAD, 0));
-                        lockInstructions.add(new InsnNode(MONITOREXIT));
-                        instructions.insertBefore(instruction, lockInstructions);
+    static void changeSuperclass(ClassIndex clazz, String newSuperclass) {
+        ClassNode node = clazz.clazz;
+        clazz.markModified();
+        for (MethodNode method : (List<MethodNode>) node.methods) {
+            for (AbstractInsnNode instruction = method.instructions.getFirst(); instruction != null; instruction = instruction.getNext()) {
+                if (instruction.getOpcode() == INVOKESPECIAL) {
+                    MethodInsnNode methodInstruction = (MethodInsnNode) instruction;
+                    if (methodInstruction.owner.equals(node.superName)) {
+                        methodInstruction.owner = newSuperclass;
+                        break;
                     }
                 }
-                lockInstructions.clear();
-                lockInstructions.add(new VarInsnNode(ALOAD, 0));
-                lockInstructions.add(new InsnNode(MONITOREXIT));
-                instructions.insert(instructions.getLast(), lockInstructions);
-                break;
             }
         }
+        node.superName = newSuperclass;
     }
 
     private static String generateDescriptor(Class<?> returnType, Class<?>... parameterTypes) {
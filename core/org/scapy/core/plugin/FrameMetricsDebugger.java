@@ -0,0 +1,46 @@
+package org.scapy.core.plugin;
+
+import org.scapy.core.FrameMetrics;
+import org.scapy.core.utils.LatencyHistogram;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.util.concurrent.TimeUnit;
+
+@PluginManifest(name = "Frame timing", description = "Shows the frame rate and percentiles of frame, game loop and paint timings.")
+public final class FrameMetricsDebugger extends Debugger {
+
+    private static final int X = 10;
+    private static final int Y = 40;
+    private static final int LINE_HEIGHT = 15;
+    private boolean wasEnabled;
+
+    @Override
+    protected void paint(Graphics g) {
+        g.setColor(Color.YELLOW);
+        g.drawString(String.format("FPS: %.1f", FrameMetrics.getFramesPerSecond()), X, Y);
+        drawHistogram(g, "Frame", FrameMetrics.getFrameIntervals(), Y + LINE_HEIGHT);
+        drawHistogram(g, "Game loop", FrameMetrics.getGameLoopIntervals(), Y + LINE_HEIGHT * 2);
+        drawHistogram(g, "Paint", FrameMetrics.getPaintTimes(), Y + LINE_HEIGHT * 3);
+    }
+
+    @Override
+    protected void onSelect(boolean selected) {
+        if (selected) {
+            wasEnabled = FrameMetrics.isEnabled();
+            FrameMetrics.setEnabled(true);
+            FrameMetrics.reset();
+        } else if (!wasEnabled) {
+            FrameMetrics.setEnabled(false);
+        }
+    }
+
+    private static void drawHistogram(Graphics g, String name, LatencyHistogram histogram, int y) {
+        g.drawString(String.format("%s: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                name,
+                histogram.getPercentile(50, TimeUnit.MICROSECONDS) / 1000.0,
+                histogram.getPercentile(95, TimeUnit.MICROSECONDS) / 1000.0,
+                histogram.getPercentile(99, TimeUnit.MICROSECONDS) / 1000.0,
+                histogram.getMaximum(TimeUnit.MICROSECONDS) / 1000.0), X, y);
+    }
+}
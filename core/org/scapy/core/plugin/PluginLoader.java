@@ -24,7 +24,7 @@ public final class PluginLoader {
 	}
 
 	public static Plugin load(final Gamepack<?> gamepack) throws ReflectiveOperationException {
-        ClassLoader loader = new DefinableClassLoader(gamepack.classes);
+        ClassLoader loader = new DefinableClassLoader(gamepack);
 		for (ClassNode clazz : gamepack.classes.values()) {
 			List<AnnotationNode> annotations = clazz.visibleAnnotations;
 			if (annotations != null) {
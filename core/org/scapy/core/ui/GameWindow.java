@@ -3,6 +3,7 @@ package org.scapy.core.ui;
 import org.scapy.Application;
 import org.scapy.Settings;
 import org.scapy.Settings.DefaultSettings;
+import org.scapy.core.GameCanvas;
 import org.scapy.core.GameInstance;
 import org.scapy.core.event.EventDispatcher;
 import org.scapy.core.event.impl.PluginEvent;
@@ -10,6 +11,8 @@ import org.scapy.core.event.listeners.PluginAdapter;
 import org.scapy.core.plugin.Plugin;
 
 import javax.swing.*;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import java.applet.Applet;
 import java.awt.Component;
 import java.awt.event.ActionEvent;
@@ -18,6 +21,8 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.EnumMap;
+import java.util.Map;
 
 /**
  * The application user interface.
@@ -48,7 +53,10 @@ public final class GameWindow extends JFrame {
     private final JCheckBoxMenuItem developerItem = new JCheckBoxMenuItem("Developer mode");
     private final JMenuItem reloadSettingsItem = new JMenuItem("Reload settings");
     private final JMenuItem screenshotItem = new JMenuItem("Screenshot");
+    private final JCheckBoxMenuItem recordItem = new JCheckBoxMenuItem("Record");
     private final JMenuItem defaultWorldItem = new JMenuItem("Default world");
+    private final JMenu renderModeMenu = new JMenu("Render mode");
+    private final Map<GameCanvas.RenderMode, JRadioButtonMenuItem> renderModeItems = new EnumMap<>(GameCanvas.RenderMode.class);
     private final JMenu pluginMenu = new JMenu("Plugin");
     private final JMenuItem loadItem = new JMenuItem("Load");
     private final JMenuItem settingsItem = new JMenuItem("Settings");
@@ -77,13 +85,17 @@ public final class GameWindow extends JFrame {
             debugMenu.setEnabled(false);
         }
         screenshotItem.setEnabled(false);
+        recordItem.setEnabled(false);
+        renderModeMenu.setEnabled(false);
         pluginMenu.setEnabled(false);
         debugMenu.setVisible(false);
         JMenu fileMenu = new JMenu("File");
         fileMenu.add(developerItem);
         fileMenu.add(reloadSettingsItem);
         fileMenu.add(screenshotItem);
+        fileMenu.add(recordItem);
         fileMenu.add(defaultWorldItem);
+        fileMenu.add(renderModeMenu);
         pluginMenu.add(loadItem);
         pluginMenu.add(settingsItem);
         menuBar.add(fileMenu);
@@ -116,6 +128,8 @@ public final class GameWindow extends JFrame {
             public void run() {
                 gamePanel.add(gameApplet);
                 screenshotItem.setEnabled(!Application.isVirtualMode());
+                recordItem.setEnabled(!Application.isVirtualMode());
+                renderModeMenu.setEnabled(true);
                 pluginMenu.setEnabled(true);
                 debugMenu.setVisible(true);
                 pack();
@@ -185,6 +199,24 @@ public final class GameWindow extends JFrame {
                 Application.getGame().getCanvas().takeScreenshot();
             }
         });
+        recordItem.addActionListener(new ActionListener() {
+
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                GameCanvas canvas = Application.getGame().getCanvas();
+                try {
+                    if (recordItem.isSelected()) {
+                        canvas.startRecording();
+                    } else {
+                        canvas.stopRecording();
+                    }
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                    JOptionPane.showMessageDialog(GameWindow.this, "Could not write the recording.", "Recording Error", JOptionPane.ERROR_MESSAGE);
+                }
+                recordItem.setSelected(canvas.isRecording());
+            }
+        });
         defaultWorldItem.addActionListener(new ActionListener() {
 
             @Override
@@ -205,6 +237,46 @@ public final class GameWindow extends JFrame {
                 }
             }
         });
+        final ButtonGroup renderModeGroup = new ButtonGroup();
+        for (final GameCanvas.RenderMode renderMode : GameCanvas.RenderMode.values()) {
+            if (renderMode == GameCanvas.RenderMode.HEADLESS) {
+                continue;
+            }
+            String name = renderMode.name();
+            final JRadioButtonMenuItem renderModeItem = new JRadioButtonMenuItem(name.charAt(0) + name.substring(1).toLowerCase());
+            renderModeItem.addActionListener(new ActionListener() {
+
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    Application.getGame().getCanvas().setRenderMode(renderMode);
+                }
+            });
+            renderModeGroup.add(renderModeItem);
+            renderModeMenu.add(renderModeItem);
+            renderModeItems.put(renderMode, renderModeItem);
+        }
+        renderModeMenu.addMenuListener(new MenuListener() {
+
+            @Override
+            public void menuSelected(MenuEvent e) {
+                JRadioButtonMenuItem currentItem = renderModeItems.get(Application.getGame().getCanvas().getRenderMode());
+                if (currentItem != null) {
+                    currentItem.setSelected(true);
+                } else {
+                    renderModeGroup.clearSelection();
+                }
+            }
+
+            @Override
+            public void menuDeselected(MenuEvent e) {
+
+            }
+
+            @Override
+            public void menuCanceled(MenuEvent e) {
+
+            }
+        });
         loadItem.addActionListener(new ActionListener() {
 
             @Override
@@ -0,0 +1,68 @@
+package org.scapy.core.utils;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A model of the class hierarchy used to answer common super class queries
+ * when frames are computed. Classes are added explicitly by their internal
+ * names; any other class is resolved through the class loader of the
+ * application and remembered.
+ */
+public class ClassHierarchy {
+
+    private static final String OBJECT = "java/lang/Object";
+    private static final String INTERFACE = "";
+    private final Map<String, String> superNames = new ConcurrentHashMap<>();
+
+    public void add(String name, String superName, boolean isInterface) {
+        superNames.put(name, isInterface ? INTERFACE : (superName == null ? OBJECT : superName));
+    }
+
+    public String getCommonSuperClass(String type1, String type2) {
+        if (type1.equals(type2)) {
+            return type1;
+        }
+        String superName1 = getSuperName(type1);
+        String superName2 = getSuperName(type2);
+        if (superName1 == null || superName2 == null || superName1.equals(INTERFACE) || superName2.equals(INTERFACE)) {
+            return OBJECT;
+        }
+        Set<String> ancestors = new HashSet<>();
+        for (String type = type2; type != null; type = getSuperName(type)) {
+            ancestors.add(type);
+            if (type.equals(OBJECT)) {
+                break;
+            }
+        }
+        for (String type = type1; type != null; type = getSuperName(type)) {
+            if (ancestors.contains(type)) {
+                return type;
+            }
+            if (type.equals(OBJECT)) {
+                break;
+            }
+        }
+        return OBJECT;
+    }
+
+    private String getSuperName(String type) {
+        if (type.equals(OBJECT)) {
+            return OBJECT;
+        }
+        String superName = superNames.get(type);
+        if (superName == null) {
+            try {
+                Class<?> clazz = Class.forName(type.replace('/', '.'), false, ClassHierarchy.class.getClassLoader());
+                Class<?> superclass = clazz.getSuperclass();
+                add(type, (superclass == null) ? null : superclass.getName().replace('.', '/'), clazz.isInterface());
+                superName = superNames.get(type);
+            } catch (ClassNotFoundException e) {
+                return null;
+            }
+        }
+        return superName;
+    }
+}
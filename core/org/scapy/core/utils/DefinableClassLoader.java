@@ -1,24 +1,26 @@
 package org.scapy.core.utils;
 
-import org.objectweb.asm.tree.ClassNode;
 import org.scapy.Application;
+import org.scapy.core.Gamepack;
 
 import javax.swing.JOptionPane;
-import java.util.Map;
 
 public class DefinableClassLoader extends ClassLoader {
 
-    private final Map<String, ClassNode> classes;
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Gamepack<?> gamepack;
 
-    public DefinableClassLoader(Map<String, ClassNode> classes) {
-        this.classes = classes;
+    public DefinableClassLoader(Gamepack<?> gamepack) {
+        this.gamepack = gamepack;
     }
 
     @Override
     protected Class<?> findClass(String name) throws ClassNotFoundException {
-        ClassNode clazz = classes.remove(name);
-        if (clazz != null) {
-            byte[] classBytes = VerifyClassWriter.toBytes(clazz);
+        byte[] classBytes = gamepack.writeClass(name);
+        if (classBytes != null) {
             try {
                 return defineClass(name, classBytes, 0, classBytes.length);
             } catch (ClassFormatError e) {
@@ -29,4 +31,4 @@ public class DefinableClassLoader extends ClassLoader {
         }
         return super.findClass(name);
     }
-}
\ No newline at end of file
+}
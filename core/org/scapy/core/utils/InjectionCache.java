@@ -0,0 +1,82 @@
+package org.scapy.core.utils;
+
+import org.scapy.Application;
+import org.scapy.core.Gamepack;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * A persistent store of the final, injected class files of a gamepack.
+ *
+ * <p>
+ * Each cache entry is keyed by the gamepack revision, the injection variant
+ * (which reflects settings that change the generated code) and a digest of
+ * the hook data that was used to modify it. Because an entry is only ever
+ * looked up by its full key, a change to any input results in a cache miss;
+ * stale entries are removed the next time a new entry is saved. Entries are written
+ * to a temporary file first so that an interrupted write never leaves a
+ * partial entry behind.
+ */
+public final class InjectionCache {
+
+    /**
+     * The version of the injection procedure. Any change to the way classes
+     * are modified must be accompanied by incrementing this value, so that
+     * entries produced by older versions are no longer used.
+     */
+    private static final int INJECTION_VERSION = 1;
+    private static final String PREFIX = "injected-";
+    private static final String CLASS_SUFFIX = ".class";
+    private final Path path;
+
+    public InjectionCache(int revision, byte[] hookData, String variant) {
+        path = Application.getPath("data", PREFIX + INJECTION_VERSION + "-" + variant + "-" + revision + "-" + digest(hookData) + ".jar");
+    }
+
+    public Gamepack<?> load() throws IOException {
+        return Files.exists(path) ? Gamepack.create(path, Gamepack.LoadingMode.LAZY) : null;
+    }
+
+    public void save(Map<String, byte[]> definitions) throws IOException {
+        Path directory = path.getParent();
+        try (DirectoryStream<Path> staleEntries = Files.newDirectoryStream(directory, PREFIX + "*.jar")) {
+            for (Path staleEntry : staleEntries) {
+                Files.deleteIfExists(staleEntry);
+            }
+        }
+        Path temporaryPath = Files.createTempFile(directory, PREFIX, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporaryPath);
+                 JarOutputStream jarOut = new JarOutputStream(out)) {
+                for (Map.Entry<String, byte[]> definition : definitions.entrySet()) {
+                    jarOut.putNextEntry(new JarEntry(definition.getKey().replace('.', '/') + CLASS_SUFFIX));
+                    jarOut.write(definition.getValue());
+                    jarOut.closeEntry();
+                }
+            }
+            Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryPath);
+        }
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(data);
+            return String.format("%040x", new BigInteger(1, hash));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
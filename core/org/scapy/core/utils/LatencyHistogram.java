@@ -0,0 +1,103 @@
+package org.scapy.core.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of durations.
+ *
+ * <p>
+ * Durations are recorded in microseconds into buckets whose width grows with
+ * their magnitude: every power of two is split into eight equally wide
+ * buckets, which bounds the error of a reported percentile to about twelve
+ * percent while keeping the histogram small enough to cover anything from a
+ * microsecond to hours. Recording a duration only increments counters, so it
+ * can be done from any thread without blocking.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong maximum = new AtomicLong();
+
+    public void record(long duration, TimeUnit unit) {
+        long value = Math.max(0, unit.toMicros(duration));
+        counts.incrementAndGet(getBucket(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long currentMaximum;
+        while (value > (currentMaximum = maximum.get()) && !maximum.compareAndSet(currentMaximum, value)) {
+
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMean(TimeUnit unit) {
+        long currentCount = count.get();
+        return currentCount == 0 ? 0 : (double) unit.convert(total.get(), TimeUnit.MICROSECONDS) / currentCount;
+    }
+
+    public long getMaximum(TimeUnit unit) {
+        return unit.convert(maximum.get(), TimeUnit.MICROSECONDS);
+    }
+
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+        }
+        long[] snapshot = new long[BUCKET_COUNT];
+        long snapshotCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            snapshotCount += snapshot[i];
+        }
+        if (snapshotCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * snapshotCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return unit.convert(Math.min(getUpperBound(i), maximum.get()), TimeUnit.MICROSECONDS);
+            }
+        }
+        return getMaximum(unit);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        total.set(0);
+        maximum.set(0);
+    }
+
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        long width = 1L << (magnitude - SUB_BUCKET_BITS);
+        return (1L << magnitude) + (subBucket + 1) * width - 1;
+    }
+}
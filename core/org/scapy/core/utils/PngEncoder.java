@@ -0,0 +1,202 @@
+package org.scapy.core.utils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Encodes images as 24-bit RGB PNG files, compressing horizontal stripes of
+ * the image in parallel.
+ *
+ * <p>
+ * Each stripe is filtered and deflated independently and ends on a byte
+ * boundary through a sync flush, so the compressed stripes can simply be
+ * concatenated into a single zlib stream. Pixels are read straight from the
+ * integer data buffer of the image when its type is <code>TYPE_INT_RGB</code>
+ * or <code>TYPE_INT_ARGB</code>, and through <code>getRGB</code> otherwise.
+ * If the executor rejects a stripe, for example because it is shutting down,
+ * the stripe is compressed on the calling thread instead.
+ */
+public final class PngEncoder {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final int ROWS_PER_STRIPE = 64;
+    private static final int FILTER_SUB = 1;
+    private final ExecutorService executor;
+    private final int compressionLevel;
+
+    public PngEncoder(ExecutorService executor, int compressionLevel) {
+        if (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("The compression level must be between 0 and 9.");
+        }
+        this.executor = executor;
+        this.compressionLevel = compressionLevel;
+    }
+
+    public void write(BufferedImage image, OutputStream out) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        List<Future<Stripe>> stripes = new ArrayList<>();
+        for (int startRow = 0; startRow < height; startRow += ROWS_PER_STRIPE) {
+            StripeTask task = new StripeTask(image, startRow, Math.min(height, startRow + ROWS_PER_STRIPE));
+            try {
+                stripes.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                FutureTask<Stripe> inlineTask = new FutureTask<>(task);
+                inlineTask.run();
+                stripes.add(inlineTask);
+            }
+        }
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeInt(width);
+        headerOut.writeInt(height);
+        headerOut.writeByte(8);
+        headerOut.writeByte(2);
+        headerOut.writeByte(0);
+        headerOut.writeByte(0);
+        headerOut.writeByte(0);
+        writeChunk(dataOut, "IHDR", header.toByteArray(), 0, header.size());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(width * height);
+        compressed.write(0x78);
+        compressed.write(0x01);
+        Adler32 checksum = new Adler32();
+        try {
+            for (Future<Stripe> future : stripes) {
+                Stripe stripe = future.get();
+                checksum.update(stripe.raw);
+                compressed.write(stripe.compressed, 0, stripe.compressedLength);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while encoding the image.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encode the image.", e.getCause());
+        } finally {
+            for (Future<Stripe> future : stripes) {
+                future.cancel(true);
+            }
+        }
+        compressed.write(new byte[] {3, 0}, 0, 2);
+        long adler = checksum.getValue();
+        compressed.write((int) (adler >>> 24));
+        compressed.write((int) (adler >>> 16));
+        compressed.write((int) (adler >>> 8));
+        compressed.write((int) adler);
+        byte[] data = compressed.toByteArray();
+        writeChunk(dataOut, "IDAT", data, 0, data.length);
+        writeChunk(dataOut, "IEND", new byte[0], 0, 0);
+        dataOut.flush();
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int offset, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, offset, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, offset, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static final class Stripe {
+
+        final byte[] raw;
+        final byte[] compressed;
+        final int compressedLength;
+
+        Stripe(byte[] raw, byte[] compressed, int compressedLength) {
+            this.raw = raw;
+            this.compressed = compressed;
+            this.compressedLength = compressedLength;
+        }
+    }
+
+    private final class StripeTask implements Callable<Stripe> {
+
+        private final BufferedImage image;
+        private final int startRow;
+        private final int endRow;
+
+        StripeTask(BufferedImage image, int startRow, int endRow) {
+            this.image = image;
+            this.startRow = startRow;
+            this.endRow = endRow;
+        }
+
+        @Override
+        public Stripe call() {
+            int width = image.getWidth();
+            int rowLength = width * 3 + 1;
+            byte[] raw = new byte[rowLength * (endRow - startRow)];
+            int[] row = new int[width];
+            WritableRaster raster = image.getRaster();
+            int[] data = null;
+            int base = 0;
+            int stride = 0;
+            if (image.getType() == BufferedImage.TYPE_INT_RGB || image.getType() == BufferedImage.TYPE_INT_ARGB) {
+                DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+                data = dataBuffer.getData();
+                stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+                base = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+            }
+            for (int y = startRow, offset = 0; y < endRow; y++, offset += rowLength) {
+                int[] pixels;
+                int pixelOffset;
+                if (data != null) {
+                    pixels = data;
+                    pixelOffset = base + y * stride;
+                } else {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    pixels = row;
+                    pixelOffset = 0;
+                }
+                raw[offset] = FILTER_SUB;
+                int previous = 0;
+                for (int x = 0, i = offset + 1; x < width; x++) {
+                    int pixel = pixels[pixelOffset + x];
+                    raw[i++] = (byte) ((pixel >>> 16) - (previous >>> 16));
+                    raw[i++] = (byte) ((pixel >>> 8) - (previous >>> 8));
+                    raw[i++] = (byte) (pixel - previous);
+                    previous = pixel;
+                }
+            }
+            Deflater deflater = new Deflater(compressionLevel, true);
+            try {
+                deflater.setInput(raw);
+                byte[] compressed = new byte[raw.length + raw.length / 1000 + 64];
+                int length = 0;
+                while (true) {
+                    length += deflater.deflate(compressed, length, compressed.length - length, Deflater.SYNC_FLUSH);
+                    if (length < compressed.length) {
+                        break;
+                    }
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                return new Stripe(raw, compressed, length);
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package org.scapy.core.utils;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.scapy.utils.StreamUtilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Finds the revision of a gamepack by visiting the bytecode of its main class
+ * directly, without building an instruction tree.
+ *
+ * <p>
+ * The revision is the operand of the integer push instruction that directly
+ * follows the pushes of the default canvas dimensions, <code>765</code> and
+ * <code>503</code>.
+ */
+public final class RevisionProbe extends ClassVisitor {
+
+    private static final String CLIENT_ENTRY = "client.class";
+    private int revision = -1;
+
+    private RevisionProbe() {
+        super(Opcodes.ASM5);
+    }
+
+    public static int probe(byte[] clientClass) {
+        RevisionProbe probe = new RevisionProbe();
+        new ClassReader(clientClass).accept(probe, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return probe.revision;
+    }
+
+    public static int probe(Path archivePath) throws IOException {
+        try (JarFile archive = new JarFile(archivePath.toFile())) {
+            JarEntry clientEntry = archive.getJarEntry(CLIENT_ENTRY);
+            if (clientEntry == null) {
+                return -1;
+            }
+            try (InputStream in = archive.getInputStream(clientEntry)) {
+                return probe(StreamUtilities.readFully(in));
+            }
+        }
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+        return (revision == -1) ? new PatternVisitor() : null;
+    }
+
+    private final class PatternVisitor extends MethodVisitor {
+
+        private int matched;
+
+        PatternVisitor() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            if (revision != -1) {
+                return;
+            }
+            switch (matched) {
+                case 0:
+                    matched = (opcode == Opcodes.SIPUSH && operand == 765) ? 1 : 0;
+                    break;
+                case 1:
+                    if (opcode == Opcodes.SIPUSH && operand == 503) {
+                        matched = 2;
+                    } else {
+                        matched = (opcode == Opcodes.SIPUSH && operand == 765) ? 1 : 0;
+                    }
+                    break;
+                case 2:
+                    revision = operand;
+                    matched = 0;
+                    break;
+            }
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitLabel(Label label) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitLdcInsn(Object cst) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            matched = 0;
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int dims) {
+            matched = 0;
+        }
+    }
+}
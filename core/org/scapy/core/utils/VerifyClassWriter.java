@@ -6,8 +6,15 @@ import org.objectweb.asm.tree.ClassNode;
 
 public class VerifyClassWriter extends ClassWriter {
 
-    public VerifyClassWriter(int flags) {
+    private final ClassHierarchy hierarchy;
+
+    public VerifyClassWriter(int flags, ClassHierarchy hierarchy) {
         super(flags);
+        this.hierarchy = hierarchy;
+    }
+
+    public VerifyClassWriter(int flags) {
+        this(flags, null);
     }
 
     public VerifyClassWriter() {
@@ -16,7 +23,10 @@ public class VerifyClassWriter extends ClassWriter {
 
     @Override
     protected String getCommonSuperClass(String type1, String type2) {
-        return Type.getInternalName(Object.class);
+        if (hierarchy == null) {
+            return Type.getInternalName(Object.class);
+        }
+        return hierarchy.getCommonSuperClass(type1, type2);
     }
 
     public static byte[] toBytes(ClassNode clazz) {
@@ -24,4 +34,10 @@ public class VerifyClassWriter extends ClassWriter {
         clazz.accept(writer);
         return writer.toByteArray();
     }
-}
\ No newline at end of file
+
+    public static byte[] toBytes(ClassNode clazz, ClassHierarchy hierarchy, boolean computeFrames) {
+        ClassWriter writer = new VerifyClassWriter(computeFrames ? COMPUTE_FRAMES : COMPUTE_MAXS, hierarchy);
+        clazz.accept(writer);
+        return writer.toByteArray();
+    }
+}